@@ -1,8 +1,8 @@
 import React, { useEffect, useState, type JSX } from 'react';
 import Layout from '../components/Layout';
 import { useAuth } from '../context/authContext';
-import { accountAPI, transactionAPI } from '../services/api';
-import type { Account, Transaction } from '../types';
+import { accountAPI, openEventStream, transactionAPI } from '../services/api';
+import type { Account, AccountSummary, Transaction } from '../types';
 import {
     CreditCard, TrendingUp, Clock,
     ArrowUp, ArrowDown, IndianRupee
@@ -13,21 +13,42 @@ const Dashboard: React.FC = () => {
     const { user } = useAuth();
     const [account, setAccount] = useState<Account>();
     const [recentTransactions, setRecentTransactions] = useState<Transaction[]>([]);
+    const [summary, setSummary] = useState<AccountSummary>();
     const [loading, setLoading] = useState(true);
 
     useEffect(() => {
         fetchDashboardData();
     }, []);
 
+    // Live updates replace polling; a resync means events were missed, so reload everything.
+    useEffect(() => {
+        const controller = new AbortController();
+        openEventStream((name, data) => {
+            if (name === 'balance') {
+                setAccount(data as Account);
+            } else if (name === 'transaction') {
+                const transaction = data as Transaction;
+                setRecentTransactions((current) => current.some((t) => t.id === transaction.id)
+                    ? current.map((t) => (t.id === transaction.id ? transaction : t))
+                    : [transaction, ...current].slice(0, 5));
+            } else if (name === 'resync') {
+                fetchDashboardData();
+            }
+        }, controller.signal);
+        return () => controller.abort();
+    }, []);
+
     const fetchDashboardData = async () => {
         try {
-            const [accountsRes, transactionsRes] = await Promise.all([
+            const [accountsRes, transactionsRes, summaryRes] = await Promise.all([
                 accountAPI.getAccount(),
-                transactionAPI.getAllTransactions()
+                transactionAPI.getAllTransactions({ limit: 5 }),
+                accountAPI.getSummary(30)
             ]);
 
             setAccount(accountsRes.data);
-            setRecentTransactions(transactionsRes.data.slice(0, 5));
+            setRecentTransactions(transactionsRes.data.items);
+            setSummary(summaryRes.data);
         } catch (error: any) {
             toast.error('Failed to load dashboard');
         } finally {
@@ -36,6 +57,8 @@ const Dashboard: React.FC = () => {
     };
 
     const totalBalance = account?.balance ?? 0;
+    const totals = summary?.totals;
+    const transactionCount = totals ? totals.depositCount + totals.withdrawalCount + totals.transferCount : 0;
 
     const transactionIcons: Record<string, JSX.Element> = {
         DEPOSIT: <ArrowUp className="h-4 w-4 text-green-600" />,
@@ -82,14 +105,14 @@ const Dashboard: React.FC = () => {
                     />
                     <StatCard
                         icon={<TrendingUp className="h-6 w-6 text-yellow-600" />}
-                        label="Recent Transactions"
-                        value={recentTransactions.length.toString()}
+                        label="Transactions (30 days)"
+                        value={transactionCount.toString()}
                         color="bg-yellow-100"
                     />
                     <StatCard
                         icon={<Clock className="h-6 w-6 text-purple-600" />}
                         label="Pending"
-                        value={recentTransactions.filter(t => t.transactionStatus === 'PENDING').length.toString()}
+                        value={(totals?.pendingCount ?? 0).toString()}
                         color="bg-purple-100"
                     />
                 </section>
@@ -12,6 +12,8 @@ import toast from 'react-hot-toast';
 
 const Transactions: React.FC = () => {
     const [transactions, setTransactions] = useState<Transaction[]>([]);
+    const [nextCursor, setNextCursor] = useState<string | null>(null);
+    const [loadingMore, setLoadingMore] = useState(false);
     const [account, setAccount] = useState<Account>();
     const [loading, setLoading] = useState(true);
     const [showCreateForm, setShowCreateForm] = useState(false);
@@ -54,7 +56,8 @@ const Transactions: React.FC = () => {
                 transactionAPI.getAllTransactions(),
                 accountAPI.getAccount(),
             ]);
-            setTransactions(txRes.data);
+            setTransactions(txRes.data.items);
+            setNextCursor(txRes.data.nextCursor);
             setAccount(accRes.data);
         } catch (error: any) {
             toast.error('Failed to fetch data');
@@ -63,6 +66,20 @@ const Transactions: React.FC = () => {
         }
     };
 
+    const loadMore = async () => {
+        if (!nextCursor) return;
+        setLoadingMore(true);
+        try {
+            const txRes = await transactionAPI.getAllTransactions({ cursor: nextCursor });
+            setTransactions(prev => [...prev, ...txRes.data.items]);
+            setNextCursor(txRes.data.nextCursor);
+        } catch (error: any) {
+            toast.error('Failed to load more transactions');
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
     const handleCreateTransaction = async (e: React.FormEvent) => {
         e.preventDefault();
         setCreateLoading(true);
@@ -241,6 +258,17 @@ const Transactions: React.FC = () => {
                                         </li>
                                     ))}
                                 </ul>
+                                {nextCursor && (
+                                    <div className="px-6 py-4 border-t border-gray-200 text-center">
+                                        <button
+                                            onClick={loadMore}
+                                            disabled={loadingMore}
+                                            className="px-4 py-2 text-sm font-medium text-blue-600 hover:text-blue-800 disabled:opacity-50"
+                                        >
+                                            {loadingMore ? 'Loading...' : 'Load more'}
+                                        </button>
+                                    </div>
+                                )}
                             </div>
                         ) : (
                             <div className="text-center py-12">
@@ -6,7 +6,9 @@ import type {
     User,
     Account,
     AccountRequest,
+    AccountSummary,
     Transaction,
+    TransactionPage,
     TransactionRequest,
     PasswordResetRequest,
     PasswordResetVerify,
@@ -62,13 +64,80 @@ export const authAPI = {
 export const accountAPI = {
     createAccount: (data: AccountRequest) => api.post<Account>('/account', data),
     getAccount: () => api.get<Account>(`/account`),
+    getSummary: (days?: number) => api.get<AccountSummary>('/account/summary', { params: { days } }),
 };
 
 // Transaction API
 export const transactionAPI = {
     //getTransactions: (accountId: number) => api.get<Transaction[]>(`/transaction/${accountId}`),
     createTransaction: (data: TransactionRequest) => api.post<Transaction>('/transaction', data),
-    getAllTransactions: () => api.get<Transaction[]>('/transaction'),
+    getAllTransactions: (params?: { cursor?: string; limit?: number }) =>
+        api.get<TransactionPage>('/transaction', { params }),
+    getArchivedTransactions: (from: string, to: string) =>
+        api.get<Transaction[]>('/transaction/archive', { params: { from, to } }),
+};
+
+// Event stream: server-sent "balance", "transaction" and "resync" events.
+// EventSource cannot send the bearer token, so the stream is read with fetch. Reconnects resume
+// from the last event id until the signal is aborted.
+const STREAM_RETRY_MS = 3000;
+
+export const openEventStream = async (
+    onEvent: (name: string, data: unknown) => void,
+    signal: AbortSignal
+): Promise<void> => {
+    let lastEventId: string | undefined;
+    while (!signal.aborted) {
+        try {
+            const headers: Record<string, string> = { Accept: 'text/event-stream' };
+            const token = localStorage.getItem('token');
+            if (token) {
+                headers.Authorization = `Bearer ${token}`;
+            }
+            if (lastEventId) {
+                headers['Last-Event-ID'] = lastEventId;
+            }
+            const response = await fetch(`${API_BASE_URL}/events`, { headers, signal });
+            if (response.status === 401 || response.status === 403) {
+                return;
+            }
+            if (response.ok && response.body) {
+                const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+                let buffer = '';
+                for (;;) {
+                    const { value, done } = await reader.read();
+                    if (done) {
+                        break;
+                    }
+                    buffer += value;
+                    let boundary: number;
+                    while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+                        const block = buffer.slice(0, boundary);
+                        buffer = buffer.slice(boundary + 2);
+                        let name = 'message';
+                        const data: string[] = [];
+                        for (const line of block.split('\n')) {
+                            if (line.startsWith('id:')) {
+                                lastEventId = line.slice(3).trim();
+                            } else if (line.startsWith('event:')) {
+                                name = line.slice(6).trim();
+                            } else if (line.startsWith('data:')) {
+                                data.push(line.slice(5).replace(/^ /, ''));
+                            }
+                        }
+                        if (data.length > 0) {
+                            onEvent(name, JSON.parse(data.join('\n')));
+                        }
+                    }
+                }
+            }
+        } catch {
+            if (signal.aborted) {
+                return;
+            }
+        }
+        await new Promise((resolve) => setTimeout(resolve, STREAM_RETRY_MS));
+    }
 };
 
 // Password Reset API
@@ -38,6 +38,25 @@ export interface Account {
     userId: number;
 }
 
+export interface DailySummary {
+    date: string | null;
+    depositCount: number;
+    withdrawalCount: number;
+    transferCount: number;
+    pendingCount: number;
+    completedCount: number;
+    failedCount: number;
+    inflow: number;
+    outflow: number;
+}
+
+export interface AccountSummary {
+    from: string;
+    to: string;
+    totals: DailySummary;
+    days: DailySummary[];
+}
+
 export interface AccountRequest {
     accountType: AccountType;
     branch: string;
@@ -51,6 +70,12 @@ export interface Transaction {
     transactionStatus: TransactionStatus;
 }
 
+export interface TransactionPage {
+    items: Transaction[];
+    nextCursor: string | null;
+    hasMore: boolean;
+}
+
 export interface TransactionRequest {
     amount: number;
     transactionType: TransactionType;
@@ -0,0 +1,107 @@
+package com.smartbank.benchmark;
+
+import com.smartbank.dto.AccountResponseDTO;
+import com.smartbank.dto.TransactionResponseDTO;
+import com.smartbank.dto.UserResponseDTO;
+import com.smartbank.entity.Account;
+import com.smartbank.entity.Transaction;
+import com.smartbank.entity.User;
+import com.smartbank.entity.enums.AccountType;
+import com.smartbank.entity.enums.TransactionStatus;
+import com.smartbank.entity.enums.TransactionType;
+import com.smartbank.mapper.AccountMapper;
+import com.smartbank.mapper.TransactionMapper;
+import com.smartbank.mapper.UserMapper;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Build-time generated MapStruct mappers used by the services against the reflective ModelMapper
+ * calls they replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final AccountMapper accountMapper = Mappers.getMapper(AccountMapper.class);
+    private final UserMapper userMapper = Mappers.getMapper(UserMapper.class);
+    private final TransactionMapper transactionMapper = Mappers.getMapper(TransactionMapper.class);
+    private Transaction transaction;
+    private Account account;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        user = new User();
+        user.setId(7L);
+        user.setName("Alice");
+        user.setEmail("alice@example.com");
+        user.setCountryCode("+91");
+        user.setPhoneNumber("9876543210");
+        user.setAddress("1 Main Street");
+
+        account = new Account();
+        account.setId(11L);
+        account.setAccountNumber("123456789012");
+        account.setAccountType(AccountType.SAVINGS);
+        account.setBalance(new BigDecimal("1520.75"));
+        account.setBranch("Central");
+        account.setUser(user);
+
+        transaction = new Transaction();
+        transaction.setId(42L);
+        transaction.setTransactionType(TransactionType.TRANSFER);
+        transaction.setTransactionStatus(TransactionStatus.COMPLETED);
+        transaction.setAmount(new BigDecimal("250.00"));
+        transaction.setTransactionDate(LocalDateTime.of(2025, 1, 15, 10, 30));
+        transaction.setSourceAccount(account);
+    }
+
+    @Benchmark
+    public TransactionResponseDTO transactionGenerated() {
+        return transactionMapper.toResponseDTO(transaction);
+    }
+
+    @Benchmark
+    public TransactionResponseDTO transactionModelMapper() {
+        return modelMapper.map(transaction, TransactionResponseDTO.class);
+    }
+
+    @Benchmark
+    public AccountResponseDTO accountGenerated() {
+        return accountMapper.toResponseDTO(account);
+    }
+
+    @Benchmark
+    public AccountResponseDTO accountModelMapper() {
+        return modelMapper.map(account, AccountResponseDTO.class);
+    }
+
+    @Benchmark
+    public UserResponseDTO userGenerated() {
+        return userMapper.toResponseDTO(user);
+    }
+
+    @Benchmark
+    public UserResponseDTO userModelMapper() {
+        return modelMapper.map(user, UserResponseDTO.class);
+    }
+}
@@ -0,0 +1,47 @@
+package com.smartbank.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The balance updates performed by a TRANSFER in {@code createTransaction}: a checked debit of the
+ * source and a credit of the target.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BalanceArithmeticBenchmark {
+    private final BigDecimal sourceBalance = new BigDecimal("1048576.35");
+    private final BigDecimal targetBalance = new BigDecimal("2500.10");
+    private final BigDecimal amount = new BigDecimal("199.99");
+
+    @Benchmark
+    public void transfer(Blackhole blackhole) {
+        blackhole.consume(TransactionServiceImpl.debit(sourceBalance, amount));
+        blackhole.consume(targetBalance.add(amount));
+    }
+
+    @Benchmark
+    public BigDecimal withdrawal() {
+        return TransactionServiceImpl.debit(sourceBalance, amount);
+    }
+
+    @Benchmark
+    public BigDecimal deposit() {
+        return sourceBalance.add(amount);
+    }
+}
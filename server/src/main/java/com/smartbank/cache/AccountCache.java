@@ -0,0 +1,61 @@
+package com.smartbank.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smartbank.dto.AccountResponseDTO;
+import com.smartbank.event.AccountChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of the account view served by {@code GET /api/v1/account}, keyed by user id.
+ * Entries are invalidated once a transaction that changed the account commits, locally and on
+ * other nodes through the configured {@link CacheInvalidationChannel}.
+ */
+@Component
+public class AccountCache {
+    private final Cache<Long, AccountResponseDTO> cache;
+    private final CacheInvalidationChannel channel;
+
+    public AccountCache(CacheInvalidationChannel channel,
+                        MeterRegistry meterRegistry,
+                        @Value("${account.cache.max-size:10000}") long maxSize,
+                        @Value("${account.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.channel = channel;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "account");
+        channel.subscribe(cache::invalidate);
+    }
+
+    /**
+     * Loads through {@code loader} on a miss. An invalidation racing with the load waits for it
+     * and then removes the loaded value, so a stale read is never left behind.
+     */
+    public AccountResponseDTO get(Long userId, Supplier<AccountResponseDTO> loader) {
+        return cache.get(userId, key -> loader.get());
+    }
+
+    public AccountResponseDTO peek(Long userId) {
+        return cache.getIfPresent(userId);
+    }
+
+    // fallbackExecution covers writers such as createAccount that publish after their save has committed.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChanged(AccountChangedEvent event) {
+        if (event.userId() == null) {
+            return;
+        }
+        cache.invalidate(event.userId());
+        channel.publish(event.userId());
+    }
+}
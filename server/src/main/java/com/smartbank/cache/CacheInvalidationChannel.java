@@ -0,0 +1,22 @@
+package com.smartbank.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts account cache invalidations to the other application nodes. It also carries
+ * transaction status changes, so event streams open on another node see them too.
+ */
+public interface CacheInvalidationChannel {
+    void publish(Long userId);
+
+    void subscribe(Consumer<Long> listener);
+
+    // Delivered to the other nodes only; the publishing node has already handled the change.
+    void publishTransaction(TransactionNotice notice);
+
+    void subscribeTransactions(Consumer<TransactionNotice> listener);
+
+    // Ids only; receivers reload the transaction if one of its users is connected to them.
+    record TransactionNotice(Long transactionId, Long sourceUserId, Long targetUserId) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.smartbank.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Single-node channel: the local cache is already invalidated, so there is nobody else to tell.
+ */
+@Component
+@ConditionalOnProperty(name = "account.cache.invalidation", havingValue = "local", matchIfMissing = true)
+public class LocalInvalidationChannel implements CacheInvalidationChannel {
+
+    @Override
+    public void publish(Long userId) {
+    }
+
+    @Override
+    public void subscribe(Consumer<Long> listener) {
+    }
+
+    @Override
+    public void publishTransaction(TransactionNotice notice) {
+    }
+
+    @Override
+    public void subscribeTransactions(Consumer<TransactionNotice> listener) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.smartbank.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Multi-node channel over Postgres LISTEN/NOTIFY. A daemon thread holds one dedicated connection
+ * listening on the channels and hands every notified user id or transaction to the subscribers.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "account.cache.invalidation", havingValue = "postgres")
+public class PostgresInvalidationChannel implements CacheInvalidationChannel {
+    private static final String CHANNEL = "account_cache_invalidation";
+    // Payload "<node>:<transaction id>:<source user id>:<target user id or empty>".
+    private static final String TRANSACTION_CHANNEL = "transaction_status_changed";
+    private static final int POLL_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Consumer<Long>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<TransactionNotice>> transactionListeners = new CopyOnWriteArrayList<>();
+    private final String nodeId = UUID.randomUUID().toString();
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    @Override
+    public void publish(Long userId) {
+        jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, CHANNEL, String.valueOf(userId));
+    }
+
+    @Override
+    public void subscribe(Consumer<Long> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void publishTransaction(TransactionNotice notice) {
+        String payload = nodeId + ":" + notice.transactionId() + ":" + notice.sourceUserId() + ":"
+                + (notice.targetUserId() != null ? notice.targetUserId() : "");
+        jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, TRANSACTION_CHANNEL, payload);
+    }
+
+    @Override
+    public void subscribeTransactions(Consumer<TransactionNotice> listener) {
+        transactionListeners.add(listener);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        listenerThread = new Thread(this::listen, "account-cache-invalidation");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                    statement.execute("LISTEN " + TRANSACTION_CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        if (TRANSACTION_CHANNEL.equals(notification.getName())) {
+                            dispatchTransaction(notification.getParameter());
+                        } else {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Account cache invalidation listener failed, reconnecting: {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        try {
+            Long userId = Long.valueOf(payload);
+            listeners.forEach(listener -> listener.accept(userId));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed account cache invalidation '{}'", payload);
+        }
+    }
+
+    private void dispatchTransaction(String payload) {
+        String[] parts = payload.split(":", -1);
+        if (parts.length != 4 || parts[0].equals(nodeId)) {
+            return;
+        }
+        try {
+            TransactionNotice notice = new TransactionNotice(Long.valueOf(parts[1]), Long.valueOf(parts[2]),
+                    parts[3].isEmpty() ? null : Long.valueOf(parts[3]));
+            transactionListeners.forEach(listener -> listener.accept(notice));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed transaction notification '{}'", payload);
+        }
+    }
+}
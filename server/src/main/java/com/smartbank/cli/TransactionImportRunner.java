@@ -0,0 +1,51 @@
+package com.smartbank.cli;
+
+import com.smartbank.dto.ImportJobDTO;
+import com.smartbank.service.TransactionImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports a transaction CSV from the command line and exits, e.g.
+ * {@code java -jar smartbank.jar --spring.main.web-application-type=none --import.transactions.file=history.csv}.
+ * Add {@code --import.transactions.resume-job=<id>} to continue an interrupted import.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "import.transactions.file")
+public class TransactionImportRunner implements ApplicationRunner {
+    private final TransactionImportService importService;
+    private final ApplicationContext context;
+
+    @Value("${import.transactions.file}")
+    private Path file;
+
+    @Value("${import.transactions.resume-job:#{null}}")
+    private Long resumeJobId;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int exitCode = 0;
+        try (InputStream input = Files.newInputStream(file)) {
+            ImportJobDTO job = importService.importTransactions(file.getFileName().toString(), input, resumeJobId);
+            log.info("Import job {} finished: {} imported, {} rejected", job.getId(), job.getRowsImported(), job.getRowsRejected());
+        } catch (RuntimeException e) {
+            log.error("Import failed: {}", e.getMessage());
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
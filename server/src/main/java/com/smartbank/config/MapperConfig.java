@@ -1,6 +1,9 @@
 package com.smartbank.config;
+import com.smartbank.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.mail.internet.MimeMessage;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.MailException;
@@ -14,15 +17,20 @@ import java.io.InputStream;
 @Configuration
 public class MapperConfig {
     @Bean
-    public ModelMapper modelMapper(){
-        return new ModelMapper();
-    }
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength,
+                                           @Value("${security.password.pool-size:0}") int poolSize,
+                                           @Value("${security.password.queue-capacity:64}") int queueCapacity,
+                                           @Value("${security.password.wait-timeout-ms:5000}") long waitTimeoutMs,
+                                           @Value("${security.password.retry-after-seconds:1}") long retryAfterSeconds,
+                                           MeterRegistry meterRegistry) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), threads, queueCapacity,
+                waitTimeoutMs, retryAfterSeconds, meterRegistry);
     }
 
+    // With mail.sender=smtp this stays out of the way and Spring Boot builds a sender from spring.mail.*.
     @Bean
+    @ConditionalOnProperty(name = "mail.sender", havingValue = "noop", matchIfMissing = true)
     public JavaMailSender javaMailSender(){
         return new JavaMailSender() {
             @Override
@@ -2,9 +2,12 @@ package com.smartbank.controller;
 
 import com.smartbank.dto.AccountRequestDTO;
 import com.smartbank.dto.AccountResponseDTO;
+import com.smartbank.dto.AccountSummaryDTO;
 import com.smartbank.service.AccountService;
+import com.smartbank.service.AccountSummaryService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +19,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class AccountController {
     private final AccountService accountService;
+    private final AccountSummaryService accountSummaryService;
 
     @PostMapping("/account")
     public ResponseEntity<AccountResponseDTO> createAccount(@Valid @RequestBody AccountRequestDTO accountDTO){
@@ -24,9 +28,21 @@ public class AccountController {
     }
 
     @GetMapping("/account")
-    public ResponseEntity<AccountResponseDTO> getAccountById() {
+    public ResponseEntity<AccountResponseDTO> getAccountById(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String etag = accountService.getAccountETag();
+            if (ConditionalRequests.matches(ifNoneMatch, etag)) {
+                return ConditionalRequests.notModified(etag);
+            }
+        }
         AccountResponseDTO account = accountService.getAccountByUserId();
-        return new ResponseEntity<>(account, HttpStatus.OK);
+        return ConditionalRequests.ok(account.getEtag(), account);
+    }
+
+    @GetMapping("/account/summary")
+    public ResponseEntity<AccountSummaryDTO> getSummary(@RequestParam(required = false) Integer days) {
+        return new ResponseEntity<>(accountSummaryService.getSummary(days), HttpStatus.OK);
     }
 
     @GetMapping("/admin/accounts")
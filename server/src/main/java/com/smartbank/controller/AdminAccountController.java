@@ -0,0 +1,39 @@
+package com.smartbank.controller;
+
+import com.smartbank.dto.AccountResponseDTO;
+import com.smartbank.service.AccountService;
+import com.smartbank.service.AccountSummaryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+// Write endpoints any authenticated user could call; mapped only with admin.endpoints.enabled=true.
+@RestController
+@ConditionalOnProperty(name = "admin.endpoints.enabled", havingValue = "true")
+@RequestMapping("/api/v1/admin/accounts")
+@RequiredArgsConstructor
+public class AdminAccountController {
+    private final AccountService accountService;
+    private final AccountSummaryService accountSummaryService;
+
+    @PostMapping("/summaries/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildSummaries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        int rows = accountSummaryService.rebuild(from, to);
+        return new ResponseEntity<>(Map.of("rows", rows), HttpStatus.OK);
+    }
+
+    @PutMapping("/{accountNumber}/stripes")
+    public ResponseEntity<AccountResponseDTO> configureBalanceStripes(@PathVariable String accountNumber,
+                                                                      @RequestParam int count) {
+        AccountResponseDTO account = accountService.configureBalanceStripes(accountNumber, count);
+        return new ResponseEntity<>(account, HttpStatus.OK);
+    }
+}
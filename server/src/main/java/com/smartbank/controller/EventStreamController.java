@@ -0,0 +1,34 @@
+package com.smartbank.controller;
+
+import com.smartbank.security.CurrentUser;
+import com.smartbank.stream.EventStreamHub;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/v1/events")
+@RequiredArgsConstructor
+public class EventStreamController {
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    private final EventStreamHub eventStreamHub;
+    private final CurrentUser currentUser;
+
+    // Pushes "balance", "transaction" and "resync" events for the caller's account.
+    // X-Accel-Buffering stops nginx-style proxies from holding events back.
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId) {
+        SseEmitter emitter = eventStreamHub.subscribe(currentUser.userId(), lastEventId);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+}
@@ -0,0 +1,33 @@
+package com.smartbank.controller;
+
+import com.smartbank.dto.ImportJobDTO;
+import com.smartbank.service.TransactionImportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+// Any authenticated user could call this, so it is off unless admin.endpoints.enabled=true.
+// TransactionImportRunner imports from the command line without it.
+@RestController
+@ConditionalOnProperty(name = "admin.endpoints.enabled", havingValue = "true")
+@RequestMapping("/api/v1/admin/imports")
+@RequiredArgsConstructor
+public class ImportController {
+    private final TransactionImportService importService;
+
+    // The CSV is streamed from the request body; pass resumeJobId to continue an interrupted job.
+    @PostMapping(value = "/transactions", consumes = {"text/csv", "application/octet-stream"})
+    public ResponseEntity<ImportJobDTO> importTransactions(InputStream body,
+                                                           @RequestParam(defaultValue = "upload") String source,
+                                                           @RequestParam(required = false) Long resumeJobId) {
+        return ResponseEntity.ok(importService.importTransactions(source, body, resumeJobId));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJobDTO> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(importService.getJob(id));
+    }
+}
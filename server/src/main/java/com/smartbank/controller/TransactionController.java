@@ -1,13 +1,28 @@
 package com.smartbank.controller;
 
+import com.smartbank.dto.BatchTransactionRequestDTO;
+import com.smartbank.dto.BatchTransactionResponseDTO;
+import com.smartbank.dto.TransactionAuthorizationRequestDTO;
+import com.smartbank.dto.TransactionAuthorizationResponseDTO;
+import com.smartbank.dto.TransactionPageDTO;
 import com.smartbank.dto.TransactionRequestDTO;
 import com.smartbank.dto.TransactionResponseDTO;
+import com.smartbank.service.IdempotencyService;
+import com.smartbank.service.IdempotencyService.IdempotentResult;
+import com.smartbank.service.TransactionArchiveService;
 import com.smartbank.service.TransactionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
 
 
@@ -15,12 +30,54 @@ import java.util.List;
 @RequestMapping("/api/v1/transaction")
 @RequiredArgsConstructor
 public class TransactionController {
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     private final TransactionService transactionService;
+    private final IdempotencyService idempotencyService;
+    private final TransactionArchiveService archiveService;
 
     @PostMapping
-    public ResponseEntity<TransactionResponseDTO> createTransaction(@Valid @RequestBody TransactionRequestDTO dto) {
-        TransactionResponseDTO created = transactionService.createTransaction(dto);
-        return ResponseEntity.ok(created);
+    public ResponseEntity<TransactionResponseDTO> createTransaction(@Valid @RequestBody TransactionRequestDTO dto,
+                                                                    @RequestParam(defaultValue = "false") boolean async,
+                                                                    @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return respond(submit(dto, async), async, false);
+        }
+        IdempotentResult<TransactionResponseDTO> result = idempotencyService.execute(idempotencyKey,
+                dto.idempotencyFingerprint() + "|async=" + async, TransactionResponseDTO.class, () -> submit(dto, async));
+        return respond(result.value(), async, result.replayed());
+    }
+
+    private TransactionResponseDTO submit(TransactionRequestDTO dto, boolean async) {
+        return async ? transactionService.submitTransaction(dto) : transactionService.createTransaction(dto);
+    }
+
+    private ResponseEntity<TransactionResponseDTO> respond(TransactionResponseDTO body, boolean async, boolean replayed) {
+        ResponseEntity.BodyBuilder response;
+        if (async) {
+            URI location = ServletUriComponentsBuilder.fromCurrentRequestUri()
+                    .path("/{id}").buildAndExpand(body.getId()).toUri();
+            response = ResponseEntity.accepted().location(location);
+        } else {
+            response = ResponseEntity.ok();
+        }
+        if (replayed) {
+            response.header(IDEMPOTENT_REPLAYED, "true");
+        }
+        return response.body(body);
+    }
+
+    @PostMapping("/authorize")
+    public ResponseEntity<TransactionAuthorizationResponseDTO> authorize(@Valid @RequestBody TransactionAuthorizationRequestDTO dto) {
+        return ResponseEntity.ok(transactionService.authorize(dto));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchTransactionResponseDTO> createBatch(@Valid @RequestBody BatchTransactionRequestDTO batch) {
+        BatchTransactionResponseDTO result = transactionService.createTransactions(batch);
+        HttpStatus status = result.isCommitted() || result.getFailed() == 0 ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY;
+        return new ResponseEntity<>(result, status);
     }
 
     @GetMapping("/{id}")
@@ -28,9 +85,30 @@ public class TransactionController {
         return ResponseEntity.ok(transactionService.getTransactionById(id));
     }
 
+    // Long-poll: answers as soon as the transaction leaves PENDING, or with its current state after waitMs.
+    @GetMapping(value = "/{id}", params = "waitMs")
+    public DeferredResult<TransactionResponseDTO> awaitById(@PathVariable Long id, @RequestParam long waitMs) {
+        return transactionService.awaitTransaction(id, waitMs);
+    }
+
+    // The ETag is taken before the page is read, so a change in between only costs the client one extra fetch.
     @GetMapping
-    public ResponseEntity<List<TransactionResponseDTO>> getAll() {
-        return ResponseEntity.ok(transactionService.getAllTransactions());
+    public ResponseEntity<TransactionPageDTO> getAll(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer limit,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = transactionService.getHistoryETag();
+        if (ConditionalRequests.matches(ifNoneMatch, etag)) {
+            return ConditionalRequests.notModified(etag);
+        }
+        return ConditionalRequests.ok(etag, transactionService.getAllTransactions(cursor, limit));
+    }
+
+    // Reads any date range, including months already moved to archive files.
+    @GetMapping("/archive")
+    public ResponseEntity<List<TransactionResponseDTO>> getArchived(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(archiveService.getTransactions(from, to));
     }
 
     @DeleteMapping("/{id}")
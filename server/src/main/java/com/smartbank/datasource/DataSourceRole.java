@@ -0,0 +1,6 @@
+package com.smartbank.datasource;
+
+public enum DataSourceRole {
+    PRIMARY,
+    REPLICA
+}
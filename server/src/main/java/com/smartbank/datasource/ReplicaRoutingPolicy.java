@@ -0,0 +1,118 @@
+package com.smartbank.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smartbank.cache.CacheInvalidationChannel;
+import com.smartbank.event.AccountChangedEvent;
+import com.smartbank.security.AuthenticatedUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a read-only transaction may use the replica. Reads fall back to the primary
+ * while the replica lags more than the configured bound or cannot be reached, and for a short
+ * window after a user's own account changed, so they always read their own writes.
+ */
+@Slf4j
+public class ReplicaRoutingPolicy implements SmartInitializingSingleton {
+    // Zero on a standalone instance, so any second Postgres can stand in for a replica locally.
+    private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery() " +
+            "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final JdbcTemplate replica;
+    private final ObjectProvider<CacheInvalidationChannel> invalidationChannel;
+    private final long maxLagMs;
+    private final Cache<Long, Boolean> recentWriters;
+    private final AtomicLong lagMs = new AtomicLong(-1);
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+    private volatile boolean replicaUsable;
+
+    public ReplicaRoutingPolicy(DataSource replicaDataSource, ObjectProvider<CacheInvalidationChannel> invalidationChannel,
+                                MeterRegistry meterRegistry, long maxLagMs, long stickyMs) {
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.invalidationChannel = invalidationChannel;
+        this.maxLagMs = maxLagMs;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(stickyMs))
+                .build();
+        this.primaryRoutes = Counter.builder("smartbank.datasource.route").tag("target", "primary").register(meterRegistry);
+        this.replicaRoutes = Counter.builder("smartbank.datasource.route").tag("target", "replica").register(meterRegistry);
+        Gauge.builder("smartbank.datasource.replica.lag", lagMs, AtomicLong::get)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    // The channel itself needs the datasource, so subscribe once all singletons exist.
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Account changes committed on other nodes make their users sticky here as well.
+        invalidationChannel.ifAvailable(channel -> channel.subscribe(this::markWrite));
+    }
+
+    public DataSourceRole route() {
+        boolean replicaRead = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && replicaUsable
+                && !isRecentWriter(currentUserId());
+        (replicaRead ? replicaRoutes : primaryRoutes).increment();
+        return replicaRead ? DataSourceRole.REPLICA : DataSourceRole.PRIMARY;
+    }
+
+    public void markWrite(Long userId) {
+        if (userId != null) {
+            recentWriters.put(userId, Boolean.TRUE);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChanged(AccountChangedEvent event) {
+        markWrite(event.userId());
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.probe-interval-ms:1000}")
+    public void probe() {
+        try {
+            Double lag = replica.queryForObject(LAG_SQL, Double.class);
+            long current = lag == null ? 0 : lag.longValue();
+            lagMs.set(current);
+            setUsable(current <= maxLagMs, current + " ms behind");
+        } catch (RuntimeException ex) {
+            lagMs.set(-1);
+            setUsable(false, ex.getMessage());
+        }
+    }
+
+    private void setUsable(boolean usable, String detail) {
+        if (usable != replicaUsable) {
+            log.info("Replica reads {} ({})", usable ? "enabled" : "disabled", detail);
+        }
+        replicaUsable = usable;
+    }
+
+    private boolean isRecentWriter(Long userId) {
+        return userId != null && recentWriters.getIfPresent(userId) != null;
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.userId();
+        }
+        return null;
+    }
+}
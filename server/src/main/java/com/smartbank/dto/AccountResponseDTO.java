@@ -1,5 +1,6 @@
 package com.smartbank.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -12,4 +13,8 @@ public class AccountResponseDTO {
     private BigDecimal balance;
     private String branch;
     private Long userId;
+
+    // Sent as the ETag header rather than in the body.
+    @JsonIgnore
+    private String etag;
 }
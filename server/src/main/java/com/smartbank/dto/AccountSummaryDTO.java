@@ -0,0 +1,18 @@
+package com.smartbank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountSummaryDTO {
+    private LocalDate from;
+    private LocalDate to;
+    private DailySummaryDTO totals;
+    private List<DailySummaryDTO> days;
+}
@@ -0,0 +1,15 @@
+package com.smartbank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResultDTO {
+    private int index;
+    private String status;
+    private TransactionResponseDTO transaction;
+    private String error;
+}
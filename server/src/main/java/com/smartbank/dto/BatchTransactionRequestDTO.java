@@ -0,0 +1,18 @@
+package com.smartbank.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchTransactionRequestDTO {
+
+    @NotEmpty(message = "At least one transaction is required")
+    private List<@Valid TransactionRequestDTO> transactions;
+
+    @Pattern(regexp = "ALL_OR_NOTHING|BEST_EFFORT", message = "Invalid batch mode")
+    private String mode = "ALL_OR_NOTHING";
+}
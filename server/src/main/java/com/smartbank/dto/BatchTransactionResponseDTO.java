@@ -0,0 +1,13 @@
+package com.smartbank.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchTransactionResponseDTO {
+    private boolean committed;
+    private int completed;
+    private int failed;
+    private List<BatchItemResultDTO> results;
+}
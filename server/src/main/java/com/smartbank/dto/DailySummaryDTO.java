@@ -0,0 +1,23 @@
+package com.smartbank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySummaryDTO {
+    private LocalDate date;
+    private Long depositCount;
+    private Long withdrawalCount;
+    private Long transferCount;
+    private Long pendingCount;
+    private Long completedCount;
+    private Long failedCount;
+    private BigDecimal inflow;
+    private BigDecimal outflow;
+}
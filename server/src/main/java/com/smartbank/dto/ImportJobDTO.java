@@ -0,0 +1,22 @@
+package com.smartbank.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+public class ImportJobDTO {
+    private Long id;
+    private String source;
+    private String status;
+    private long linesProcessed;
+    private long rowsImported;
+    private long rowsRejected;
+    private String errors;
+    private LocalDate minTransactionDate;
+    private LocalDate maxTransactionDate;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+}
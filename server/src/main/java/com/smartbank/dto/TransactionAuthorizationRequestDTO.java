@@ -0,0 +1,13 @@
+package com.smartbank.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class TransactionAuthorizationRequestDTO {
+    @NotBlank
+    private String sourceAccountNumber;
+
+    @NotBlank(message = "PIN is required")
+    private String pin;
+}
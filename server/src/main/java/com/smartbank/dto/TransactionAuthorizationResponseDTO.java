@@ -0,0 +1,15 @@
+package com.smartbank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionAuthorizationResponseDTO {
+    private String authorizationToken;
+    private Instant expiresAt;
+}
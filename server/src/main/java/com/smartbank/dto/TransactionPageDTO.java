@@ -0,0 +1,16 @@
+package com.smartbank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionPageDTO {
+    private List<TransactionResponseDTO> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
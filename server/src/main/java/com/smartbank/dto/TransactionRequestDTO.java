@@ -1,5 +1,7 @@
 package com.smartbank.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
@@ -23,11 +25,25 @@ public class TransactionRequestDTO {
 
     private String targetAccountNumber;
 
-    @NotBlank(message = "PIN is required")
     private String pin;
 
+    // Short-lived token from /api/v1/transaction/authorize, accepted in place of the PIN.
+    private String authorizationToken;
+
     @NotNull(message = "Amount is required")
     private BigDecimal amount;
 
     private LocalDateTime transactionDate;
+
+    @JsonIgnore
+    @AssertTrue(message = "PIN is required")
+    public boolean isPinOrAuthorizationPresent() {
+        return (pin != null && !pin.isBlank()) || (authorizationToken != null && !authorizationToken.isBlank());
+    }
+
+    // Fields that decide what the request does; credentials are left out so a retry with a fresh token still matches.
+    public String idempotencyFingerprint() {
+        return String.join("|", transactionType, sourceAccountNumber, String.valueOf(targetAccountNumber),
+                amount == null ? "null" : amount.stripTrailingZeros().toPlainString());
+    }
 }
@@ -31,9 +31,25 @@ public class Account {
 
     private String pin;
 
+    // Number of credit stripes when the account runs in hot mode; null or 0 for a plain account.
+    private Integer balanceStripes;
+
+    // Bumped with every change to the row balance or history; together with the stripe revisions it
+    // forms the ETag of the account and history reads.
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long revision;
+
     @NotNull
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     @JsonIgnore
     private User user;
+
+    public void bumpRevision() {
+        revision++;
+    }
+
+    public boolean isStriped() {
+        return balanceStripes != null && balanceStripes > 0;
+    }
 }
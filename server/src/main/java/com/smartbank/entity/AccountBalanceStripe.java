@@ -0,0 +1,35 @@
+package com.smartbank.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * One of the credit stripes of a hot account. Credits land on any unlocked stripe; the stripes
+ * are folded back into {@link Account#getBalance()} on debit and by a background task.
+ */
+@Entity
+@Data
+@Table(name = "account_balance_stripe",
+        uniqueConstraints = @UniqueConstraint(name = "uk_balance_stripe_account_stripe", columnNames = {"account_id", "stripe"}))
+public class AccountBalanceStripe {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+
+    @Column(nullable = false)
+    private int stripe;
+
+    @Column(nullable = false)
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    // Bumped by each credit, so credits change the account ETag without touching the account row.
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long revision;
+}
@@ -0,0 +1,46 @@
+package com.smartbank.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Per-account, per-day transaction counts and money flows, kept up to date by the transaction
+ * paths. Credits to striped accounts spread over several rows per day (one per {@code stripe})
+ * so the summary does not become the hot row again; readers sum over the stripes.
+ */
+@Entity
+@Data
+@Table(name = "account_daily_summary",
+        uniqueConstraints = @UniqueConstraint(name = "uk_account_daily_summary",
+                columnNames = {"account_id", "summary_date", "stripe"}))
+public class AccountDailySummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "summary_date", nullable = false)
+    private LocalDate summaryDate;
+
+    @Column(nullable = false)
+    private int stripe;
+
+    private long depositCount;
+    private long withdrawalCount;
+    private long transferCount;
+    private long pendingCount;
+    private long completedCount;
+    private long failedCount;
+
+    @Column(nullable = false)
+    private BigDecimal inflow = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private BigDecimal outflow = BigDecimal.ZERO;
+}
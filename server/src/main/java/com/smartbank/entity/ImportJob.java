@@ -0,0 +1,46 @@
+package com.smartbank.entity;
+
+import com.smartbank.entity.enums.ImportJobStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a transaction import. {@code linesProcessed} is committed together with each loaded
+ * chunk, so a resumed import skips exactly the lines that are already in the database.
+ */
+@Entity
+@Data
+public class ImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String source;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ImportJobStatus status;
+
+    // Data lines (after the header) consumed so far, including rejected ones.
+    private long linesProcessed;
+    private long rowsImported;
+    private long rowsRejected;
+
+    // First rejected lines with their reasons, capped to keep the row small.
+    @Column(columnDefinition = "text")
+    private String errors;
+
+    private LocalDate minTransactionDate;
+    private LocalDate maxTransactionDate;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+}
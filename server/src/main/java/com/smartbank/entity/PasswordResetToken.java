@@ -4,12 +4,18 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.Data;
 
 import java.time.LocalDateTime;
 
 @Entity
 @Data
+@Table(name = "password_reset_token", indexes = {
+        @Index(name = "idx_password_reset_token_email_otp", columnList = "email, otp"),
+        @Index(name = "idx_password_reset_token_expiry", columnList = "expiry")
+})
 public class PasswordResetToken {
 
     @Id
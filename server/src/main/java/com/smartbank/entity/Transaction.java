@@ -12,7 +12,11 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "bank_transactions") // Renamed to avoid collision
+@Table(name = "bank_transactions", // Renamed to avoid collision
+        indexes = {
+                @Index(name = "idx_bank_tx_source_date_id", columnList = "source_account_id, transaction_date, id"),
+                @Index(name = "idx_bank_tx_target_date_id", columnList = "target_account_id, transaction_date, id")
+        })
 @Check(constraints = "amount > 0") // Optional DB-level check for valid amount
 public class Transaction {
 
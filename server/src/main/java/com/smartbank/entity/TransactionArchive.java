@@ -0,0 +1,41 @@
+package com.smartbank.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A monthly {@code bank_transactions} partition that was moved out of the database into a gzipped
+ * CSV file. The row is written in the same transaction that drops the partition.
+ */
+@Entity
+@Data
+@Table(name = "transaction_archive",
+        uniqueConstraints = @UniqueConstraint(name = "uk_transaction_archive_partition", columnNames = "partition_name"))
+public class TransactionArchive {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "partition_name", nullable = false)
+    private String partitionName;
+
+    // Covers transaction dates in [rangeStart, rangeEnd).
+    @Column(nullable = false)
+    private LocalDate rangeStart;
+
+    @Column(nullable = false)
+    private LocalDate rangeEnd;
+
+    @Column(nullable = false)
+    private String path;
+
+    private long rowCount;
+    private long sizeBytes;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
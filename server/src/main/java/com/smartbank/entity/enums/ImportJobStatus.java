@@ -0,0 +1,7 @@
+package com.smartbank.entity.enums;
+
+public enum ImportJobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
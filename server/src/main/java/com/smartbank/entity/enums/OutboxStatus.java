@@ -0,0 +1,5 @@
+package com.smartbank.entity.enums;
+
+public enum OutboxStatus {
+    PENDING, SENT, DEAD
+}
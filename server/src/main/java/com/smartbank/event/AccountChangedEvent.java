@@ -0,0 +1,7 @@
+package com.smartbank.event;
+
+/**
+ * Published inside the transaction that changed an account; listeners act on it after commit.
+ */
+public record AccountChangedEvent(Long accountId, Long userId) {
+}
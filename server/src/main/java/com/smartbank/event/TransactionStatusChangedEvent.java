@@ -0,0 +1,11 @@
+package com.smartbank.event;
+
+import com.smartbank.dto.TransactionResponseDTO;
+
+/**
+ * Published inside the transaction that created a transaction or moved it to a new status; the
+ * view is taken before commit so listeners need no database access. targetUserId is null unless
+ * the transaction is a transfer.
+ */
+public record TransactionStatusChangedEvent(TransactionResponseDTO transaction, Long sourceUserId, Long targetUserId) {
+}
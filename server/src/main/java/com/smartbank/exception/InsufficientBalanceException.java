@@ -0,0 +1,8 @@
+package com.smartbank.exception;
+
+// Still an IllegalArgumentException so clients keep getting 400 Bad Request.
+public class InsufficientBalanceException extends IllegalArgumentException {
+    public InsufficientBalanceException() {
+        super("Insufficient balance");
+    }
+}
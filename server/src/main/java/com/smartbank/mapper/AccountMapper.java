@@ -0,0 +1,25 @@
+package com.smartbank.mapper;
+
+import com.smartbank.dto.AccountRequestDTO;
+import com.smartbank.dto.AccountResponseDTO;
+import com.smartbank.entity.Account;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface AccountMapper {
+
+    // Reading the id of a lazy User proxy does not initialize it.
+    @Mapping(target = "userId", source = "user.id")
+    @Mapping(target = "etag", ignore = true)
+    AccountResponseDTO toResponseDTO(Account account);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "accountNumber", ignore = true)
+    @Mapping(target = "pin", ignore = true)
+    @Mapping(target = "user", ignore = true)
+    @Mapping(target = "balanceStripes", ignore = true)
+    @Mapping(target = "revision", ignore = true)
+    Account toEntity(AccountRequestDTO dto);
+}
@@ -0,0 +1,12 @@
+package com.smartbank.mapper;
+
+import com.smartbank.dto.ImportJobDTO;
+import com.smartbank.entity.ImportJob;
+import org.mapstruct.Mapper;
+import org.mapstruct.MappingConstants;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface ImportJobMapper {
+
+    ImportJobDTO toDTO(ImportJob job);
+}
@@ -0,0 +1,12 @@
+package com.smartbank.mapper;
+
+import com.smartbank.dto.TransactionResponseDTO;
+import com.smartbank.entity.Transaction;
+import org.mapstruct.Mapper;
+import org.mapstruct.MappingConstants;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface TransactionMapper {
+
+    TransactionResponseDTO toResponseDTO(Transaction transaction);
+}
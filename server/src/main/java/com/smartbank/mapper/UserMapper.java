@@ -0,0 +1,19 @@
+package com.smartbank.mapper;
+
+import com.smartbank.dto.UserRequestDTO;
+import com.smartbank.dto.UserResponseDTO;
+import com.smartbank.entity.User;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface UserMapper {
+
+    UserResponseDTO toResponseDTO(User user);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "password", ignore = true)
+    @Mapping(target = "account", ignore = true)
+    User toEntity(UserRequestDTO dto);
+}
@@ -0,0 +1,42 @@
+package com.smartbank.repository;
+
+import com.smartbank.entity.AccountBalanceStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public interface AccountBalanceStripeRepo extends JpaRepository<AccountBalanceStripe, Long> {
+
+    // Credits the first stripe, starting at :offset, that no other transaction holds; returns 0 if all are busy.
+    @Modifying
+    @Query(value = "UPDATE account_balance_stripe SET balance = balance + :amount, revision = revision + 1 WHERE id = (" +
+            "SELECT id FROM account_balance_stripe WHERE account_id = :accountId " +
+            "ORDER BY (stripe + :offset) % :stripes LIMIT 1 FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int creditUnlockedStripe(@Param("accountId") Long accountId,
+                             @Param("offset") int offset,
+                             @Param("stripes") int stripes,
+                             @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("UPDATE AccountBalanceStripe s SET s.balance = s.balance + :amount, s.revision = s.revision + 1 " +
+            "WHERE s.account.id = :accountId AND s.stripe = :stripe")
+    int creditStripe(@Param("accountId") Long accountId, @Param("stripe") int stripe, @Param("amount") BigDecimal amount);
+
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM AccountBalanceStripe s WHERE s.account.id = :accountId")
+    BigDecimal sumBalanceByAccountId(@Param("accountId") Long accountId);
+
+    @Query("SELECT COALESCE(SUM(s.revision), 0) FROM AccountBalanceStripe s WHERE s.account.id = :accountId")
+    long sumRevisionByAccountId(@Param("accountId") Long accountId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountBalanceStripe s WHERE s.account.id = :accountId ORDER BY s.stripe")
+    List<AccountBalanceStripe> lockAllByAccountId(@Param("accountId") Long accountId);
+}
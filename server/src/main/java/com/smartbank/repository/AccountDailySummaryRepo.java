@@ -0,0 +1,23 @@
+package com.smartbank.repository;
+
+import com.smartbank.dto.DailySummaryDTO;
+import com.smartbank.entity.AccountDailySummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AccountDailySummaryRepo extends JpaRepository<AccountDailySummary, Long> {
+    @Query("SELECT new com.smartbank.dto.DailySummaryDTO(s.summaryDate, SUM(s.depositCount), SUM(s.withdrawalCount), " +
+            "SUM(s.transferCount), SUM(s.pendingCount), SUM(s.completedCount), SUM(s.failedCount), " +
+            "SUM(s.inflow), SUM(s.outflow)) FROM AccountDailySummary s " +
+            "WHERE s.accountId = :accountId AND s.summaryDate BETWEEN :from AND :to " +
+            "GROUP BY s.summaryDate ORDER BY s.summaryDate")
+    List<DailySummaryDTO> findDaily(@Param("accountId") Long accountId,
+                                    @Param("from") LocalDate from,
+                                    @Param("to") LocalDate to);
+}
@@ -0,0 +1,6 @@
+package com.smartbank.repository;
+
+public interface AccountIdView {
+    String getAccountNumber();
+    Long getId();
+}
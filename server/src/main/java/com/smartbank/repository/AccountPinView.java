@@ -0,0 +1,6 @@
+package com.smartbank.repository;
+
+public interface AccountPinView {
+    String getAccountNumber();
+    String getPin();
+}
@@ -2,12 +2,18 @@ package com.smartbank.repository;
 
 import com.smartbank.entity.Account;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,5 +22,51 @@ public interface AccountRepo extends JpaRepository<Account,Long> {
     @Query("SELECT a FROM Account a WHERE a.accountNumber = :accountNumber")
     Optional<Account> lockByAccountNumber(@Param("accountNumber") String accountNumber);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "0"))
+    @Query("SELECT a FROM Account a WHERE a.accountNumber = :accountNumber")
+    Optional<Account> lockByAccountNumberNoWait(@Param("accountNumber") String accountNumber);
+
+    // Rows come back, and are locked, in account-number order so concurrent batches never deadlock.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountNumber IN :accountNumbers ORDER BY a.accountNumber")
+    List<Account> lockAllByAccountNumberIn(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "0"))
+    @Query("SELECT a FROM Account a WHERE a.accountNumber IN :accountNumbers ORDER BY a.accountNumber")
+    List<Account> lockAllByAccountNumberInNoWait(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    // Scoped to the current transaction; Postgres has no per-statement wait for FOR UPDATE.
+    @Query(value = "SELECT set_config('lock_timeout', :timeout, true)", nativeQuery = true)
+    String applyLocalLockTimeout(@Param("timeout") String timeout);
+
     Optional<Account> findAccountByUser_Id(Long userId);
+
+    Optional<Account> findByAccountNumber(String accountNumber);
+
+    List<Account> findByBalanceStripesGreaterThan(int stripes);
+
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance + :amount, a.revision = a.revision + 1 WHERE a.id = :id")
+    int addToBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    // Rows are locked in account-number order, like lockAllByAccountNumberIn, so this cannot deadlock with it.
+    @Modifying
+    @Query(value = "UPDATE account SET revision = revision + 1 WHERE id IN (" +
+            "SELECT id FROM account WHERE id IN :ids ORDER BY account_number FOR UPDATE)", nativeQuery = true)
+    int bumpRevisions(@Param("ids") Collection<Long> ids);
+
+    // Row revision plus the stripe revisions; the sum only grows, so it changes with every balance change.
+    @Query("SELECT a.id AS id, a.revision + COALESCE((SELECT SUM(s.revision) FROM AccountBalanceStripe s " +
+            "WHERE s.account = a), 0) AS revision FROM Account a WHERE a.user.id = :userId")
+    Optional<AccountRevisionView> findRevisionByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT a.id AS id, a.revision + COALESCE((SELECT SUM(s.revision) FROM AccountBalanceStripe s " +
+            "WHERE s.account = a), 0) AS revision FROM Account a WHERE a.id = :id")
+    Optional<AccountRevisionView> findRevisionById(@Param("id") Long id);
+
+    List<AccountPinView> findPinsByAccountNumberIn(Collection<String> accountNumbers);
+
+    List<AccountIdView> findIdsByAccountNumberIn(Collection<String> accountNumbers);
 }
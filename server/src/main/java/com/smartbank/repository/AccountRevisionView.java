@@ -0,0 +1,6 @@
+package com.smartbank.repository;
+
+public interface AccountRevisionView {
+    Long getId();
+    long getRevision();
+}
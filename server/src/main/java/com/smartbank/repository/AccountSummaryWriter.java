@@ -0,0 +1,112 @@
+package com.smartbank.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Applies deltas to {@code account_daily_summary} with a batched upsert, and rebuilds date ranges
+ * from {@code bank_transactions}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountSummaryWriter {
+    private static final String UPSERT_SQL = "INSERT INTO account_daily_summary " +
+            "(account_id, summary_date, stripe, deposit_count, withdrawal_count, transfer_count, " +
+            "pending_count, completed_count, failed_count, inflow, outflow) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (account_id, summary_date, stripe) DO UPDATE SET " +
+            "deposit_count = account_daily_summary.deposit_count + EXCLUDED.deposit_count, " +
+            "withdrawal_count = account_daily_summary.withdrawal_count + EXCLUDED.withdrawal_count, " +
+            "transfer_count = account_daily_summary.transfer_count + EXCLUDED.transfer_count, " +
+            "pending_count = account_daily_summary.pending_count + EXCLUDED.pending_count, " +
+            "completed_count = account_daily_summary.completed_count + EXCLUDED.completed_count, " +
+            "failed_count = account_daily_summary.failed_count + EXCLUDED.failed_count, " +
+            "inflow = account_daily_summary.inflow + EXCLUDED.inflow, " +
+            "outflow = account_daily_summary.outflow + EXCLUDED.outflow";
+
+    // Each transaction contributes one row for its source account and, for transfers, one for its target.
+    private static final String REBUILD_SQL = "INSERT INTO account_daily_summary " +
+            "(account_id, summary_date, stripe, deposit_count, withdrawal_count, transfer_count, " +
+            "pending_count, completed_count, failed_count, inflow, outflow) " +
+            "SELECT account_id, day, 0, SUM(deposit), SUM(withdrawal), SUM(transfer), " +
+            "SUM(pending), SUM(completed), SUM(failed), SUM(inflow), SUM(outflow) FROM (" +
+            "SELECT t.source_account_id AS account_id, CAST(t.transaction_date AS date) AS day, " +
+            "CASE WHEN t.transaction_type = 'DEPOSIT' THEN 1 ELSE 0 END AS deposit, " +
+            "CASE WHEN t.transaction_type = 'WITHDRAWAL' THEN 1 ELSE 0 END AS withdrawal, " +
+            "CASE WHEN t.transaction_type = 'TRANSFER' THEN 1 ELSE 0 END AS transfer, " +
+            "CASE WHEN t.transaction_status = 'PENDING' THEN 1 ELSE 0 END AS pending, " +
+            "CASE WHEN t.transaction_status = 'COMPLETED' THEN 1 ELSE 0 END AS completed, " +
+            "CASE WHEN t.transaction_status = 'FAILED' THEN 1 ELSE 0 END AS failed, " +
+            "CASE WHEN t.transaction_status = 'COMPLETED' AND t.transaction_type = 'DEPOSIT' THEN t.amount ELSE 0 END AS inflow, " +
+            "CASE WHEN t.transaction_status = 'COMPLETED' AND t.transaction_type <> 'DEPOSIT' THEN t.amount ELSE 0 END AS outflow " +
+            "FROM bank_transactions t WHERE t.source_account_id IS NOT NULL " +
+            "AND t.transaction_date >= ? AND t.transaction_date < ? " +
+            "UNION ALL " +
+            "SELECT t.target_account_id, CAST(t.transaction_date AS date), 0, 0, 1, " +
+            "CASE WHEN t.transaction_status = 'PENDING' THEN 1 ELSE 0 END, " +
+            "CASE WHEN t.transaction_status = 'COMPLETED' THEN 1 ELSE 0 END, " +
+            "CASE WHEN t.transaction_status = 'FAILED' THEN 1 ELSE 0 END, " +
+            "CASE WHEN t.transaction_status = 'COMPLETED' THEN t.amount ELSE 0 END, 0 " +
+            "FROM bank_transactions t WHERE t.transaction_type = 'TRANSFER' AND t.target_account_id IS NOT NULL " +
+            "AND t.transaction_date >= ? AND t.transaction_date < ?" +
+            ") contributions GROUP BY account_id, day";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void upsertAll(List<SummaryDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                SummaryDelta delta = deltas.get(i);
+                ps.setLong(1, delta.accountId());
+                ps.setDate(2, Date.valueOf(delta.date()));
+                ps.setInt(3, delta.stripe());
+                ps.setLong(4, delta.deposits());
+                ps.setLong(5, delta.withdrawals());
+                ps.setLong(6, delta.transfers());
+                ps.setLong(7, delta.pending());
+                ps.setLong(8, delta.completed());
+                ps.setLong(9, delta.failed());
+                ps.setBigDecimal(10, delta.inflow());
+                ps.setBigDecimal(11, delta.outflow());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return deltas.size();
+            }
+        });
+    }
+
+    /**
+     * Replaces the summaries for {@code [from, to)} with totals recomputed from the transaction table.
+     * The table lock keeps live upserts out until the rebuilt rows commit; must run inside a transaction.
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        jdbcTemplate.execute("LOCK TABLE account_daily_summary IN SHARE ROW EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM account_daily_summary WHERE summary_date >= ? AND summary_date < ?",
+                Date.valueOf(from), Date.valueOf(to));
+        Timestamp start = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(to.atStartOfDay());
+        return jdbcTemplate.update(REBUILD_SQL, start, end, start, end);
+    }
+
+    public record SummaryDelta(long accountId, LocalDate date, int stripe,
+                               long deposits, long withdrawals, long transfers,
+                               long pending, long completed, long failed,
+                               BigDecimal inflow, BigDecimal outflow) {
+    }
+}
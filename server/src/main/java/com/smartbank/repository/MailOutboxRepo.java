@@ -0,0 +1,43 @@
+package com.smartbank.repository;
+
+import com.smartbank.entity.MailOutboxMessage;
+import com.smartbank.entity.enums.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MailOutboxRepo extends JpaRepository<MailOutboxMessage, Long> {
+
+    // Rows held by another dispatcher's claim transaction are skipped rather than waited on.
+    @Query(value = "SELECT * FROM mail_outbox WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<MailOutboxMessage> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    long countByStatus(OutboxStatus status);
+
+    /**
+     * Records the outcome of a send, unless the row was claimed again after this claim's lease ran
+     * out ({@code attempts} moved on) or already finished. Returns the number of rows updated.
+     */
+    @Modifying
+    @Query("UPDATE MailOutboxMessage m SET m.status = :status, m.nextAttemptAt = :nextAttemptAt, " +
+            "m.lastError = :lastError, m.sentAt = :sentAt WHERE m.id = :id AND m.attempts = :attempts " +
+            "AND m.status = com.smartbank.entity.enums.OutboxStatus.PENDING")
+    int completeAttempt(@Param("id") Long id,
+                        @Param("attempts") int attempts,
+                        @Param("status") OutboxStatus status,
+                        @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                        @Param("lastError") String lastError,
+                        @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query("DELETE FROM MailOutboxMessage m WHERE m.status = com.smartbank.entity.enums.OutboxStatus.SENT " +
+            "AND m.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
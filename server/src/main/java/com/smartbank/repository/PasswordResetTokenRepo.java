@@ -2,11 +2,33 @@ package com.smartbank.repository;
 
 import com.smartbank.entity.PasswordResetToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 @Repository
 public interface PasswordResetTokenRepo extends JpaRepository<PasswordResetToken,Long> {
-    Optional<PasswordResetToken> findByEmailAndOtpAndUsedFalse(String email, String otp);
+    Optional<PasswordResetToken> findFirstByEmailAndOtpAndUsedFalseAndExpiryAfter(String email, String otp, LocalDateTime now);
 
+    long countByEmailAndUsedFalseAndExpiryAfter(String email, LocalDateTime now);
+
+    @Query("SELECT MIN(t.expiry) FROM PasswordResetToken t WHERE t.email = :email AND t.used = false AND t.expiry > :now")
+    Optional<LocalDateTime> findEarliestOutstandingExpiry(@Param("email") String email, @Param("now") LocalDateTime now);
+
+    // Serializes OTP issuance per email until the end of the current transaction.
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext(:email))", nativeQuery = true)
+    Integer lockEmail(@Param("email") String email);
+
+    // Only one caller can consume a token; the loser sees 0.
+    @Modifying
+    @Query("UPDATE PasswordResetToken t SET t.used = true WHERE t.id = :id AND t.used = false AND t.expiry > :now")
+    int markUsed(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "DELETE FROM password_reset_token WHERE id IN (" +
+            "SELECT id FROM password_reset_token WHERE used OR expiry < :now LIMIT :limit)", nativeQuery = true)
+    int deleteUsedOrExpired(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
@@ -0,0 +1,21 @@
+package com.smartbank.repository;
+
+import com.smartbank.entity.TransactionArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TransactionArchiveRepo extends JpaRepository<TransactionArchive, Long> {
+    @Query("SELECT a FROM TransactionArchive a WHERE a.rangeStart < :to AND a.rangeEnd > :from ORDER BY a.rangeStart DESC")
+    List<TransactionArchive> findOverlapping(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Transactions dated before this day are no longer in the database.
+    @Query("SELECT MAX(a.rangeEnd) FROM TransactionArchive a")
+    Optional<LocalDate> findArchivedUntil();
+}
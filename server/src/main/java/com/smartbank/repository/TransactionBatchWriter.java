@@ -0,0 +1,65 @@
+package com.smartbank.repository;
+
+import com.smartbank.entity.Transaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserts transactions with a single JDBC batch. Hibernate cannot batch inserts for
+ * IDENTITY ids, so bulk paths write through here and read the generated ids back.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionBatchWriter {
+    private static final String INSERT_SQL = "INSERT INTO bank_transactions " +
+            "(transaction_type, transaction_status, amount, transaction_date, source_account_id, target_account_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Transaction tx = transactions.get(i);
+                        tx.onPrePersist();
+                        ps.setString(1, tx.getTransactionType().name());
+                        ps.setString(2, tx.getTransactionStatus().name());
+                        ps.setBigDecimal(3, tx.getAmount());
+                        ps.setTimestamp(4, Timestamp.valueOf(tx.getTransactionDate()));
+                        ps.setLong(5, tx.getSourceAccount().getId());
+                        if (tx.getTargetAccount() != null) {
+                            ps.setLong(6, tx.getTargetAccount().getId());
+                        } else {
+                            ps.setNull(6, Types.BIGINT);
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return transactions.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < transactions.size(); i++) {
+            transactions.get(i).setId(((Number) keys.get(i).get("id")).longValue());
+        }
+    }
+}
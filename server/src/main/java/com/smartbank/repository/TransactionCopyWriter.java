@@ -0,0 +1,45 @@
+package com.smartbank.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Bulk-loads transactions with Postgres {@code COPY}. Ids come from the identity column on the
+ * server, so a chunk of any size costs one round trip and no per-row id allocation.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionCopyWriter {
+    public static final String COLUMNS =
+            "transaction_type, transaction_status, amount, transaction_date, source_account_id, target_account_id";
+    private static final String COPY_SQL = "COPY bank_transactions (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+
+    private final DataSource dataSource;
+
+    /**
+     * Copies {@code csv} (rows in {@link #COLUMNS} order, empty field for NULL) using the connection
+     * of the current transaction. Returns the number of rows loaded.
+     */
+    public long copyIn(CharSequence csv) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, new StringReader(csv.toString()));
+        } catch (SQLException e) {
+            throw new SQLStateSQLExceptionTranslator().translate("COPY bank_transactions", COPY_SQL, e);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("COPY into bank_transactions failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.smartbank.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DDL and bulk reads for the monthly partitions of {@code bank_transactions}. Partitions are named
+ * {@code bank_transactions_pYYYYMM}; see {@code db/partition-bank-transactions.sql} for the conversion.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionPartitionDao {
+    private static final String PREFIX = "bank_transactions_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    // Arbitrary key for the advisory lock that keeps archival to one node at a time.
+    private static final long ARCHIVE_LOCK_KEY = 0x62616e6b5f747801L;
+
+    /**
+     * Column order of archive files. There is no header row; {@code account_id} is the account the
+     * row is filed under, so a transfer between two accounts appears once for each of them.
+     */
+    public static final String ARCHIVE_COLUMNS = "account_id, " +
+            "id, transaction_type, transaction_status, amount, transaction_date, source_account_id, target_account_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    public static String partitionName(YearMonth month) {
+        return PREFIX + month.format(SUFFIX);
+    }
+
+    public boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM pg_partitioned_table p " +
+                "JOIN pg_class c ON c.oid = p.partrelid " +
+                "WHERE c.relname = 'bank_transactions' AND pg_table_is_visible(c.oid))", Boolean.class);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    public List<YearMonth> listMonths() {
+        List<String> names = jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent " +
+                "WHERE p.relname = 'bank_transactions' AND pg_table_is_visible(p.oid) ORDER BY c.relname", String.class);
+        List<YearMonth> months = new ArrayList<>(names.size());
+        for (String name : names) {
+            if (name.startsWith(PREFIX)) {
+                try {
+                    months.add(YearMonth.parse(name.substring(PREFIX.length()), SUFFIX));
+                } catch (DateTimeParseException ignored) {
+                    // Partitions attached by hand under other names are left alone.
+                }
+            }
+        }
+        return months;
+    }
+
+    public void create(YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) +
+                " PARTITION OF bank_transactions FOR VALUES FROM ('" + month.atDay(1) +
+                "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    /** Takes the archival lock for the rest of the current transaction, or returns false if another node holds it. */
+    public boolean tryLockArchival() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)",
+                Boolean.class, ARCHIVE_LOCK_KEY));
+    }
+
+    /**
+     * Writes the month's rows as CSV in {@link #ARCHIVE_COLUMNS} order, sorted by account, date and id,
+     * using the connection of the current transaction. Returns the number of rows written.
+     */
+    public long copyOut(YearMonth month, OutputStream out) {
+        String name = partitionName(month);
+        String sql = "COPY (SELECT account_id, id, transaction_type, transaction_status, amount, " +
+                "to_char(transaction_date, 'YYYY-MM-DD\"T\"HH24:MI:SS.US'), source_account_id, target_account_id " +
+                "FROM (SELECT source_account_id AS account_id, * FROM " + name + " WHERE source_account_id IS NOT NULL " +
+                "UNION ALL SELECT target_account_id, * FROM " + name + " WHERE target_account_id IS NOT NULL " +
+                "AND target_account_id IS DISTINCT FROM source_account_id) filed " +
+                "ORDER BY account_id, transaction_date, id) TO STDOUT WITH (FORMAT csv)";
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+        } catch (SQLException e) {
+            throw new SQLStateSQLExceptionTranslator().translate("COPY " + name, sql, e);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("COPY out of " + name + " failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    public void detachAndDrop(YearMonth month) {
+        String name = partitionName(month);
+        jdbcTemplate.execute("ALTER TABLE bank_transactions DETACH PARTITION " + name);
+        jdbcTemplate.execute("DROP TABLE " + name);
+    }
+}
@@ -1,12 +1,77 @@
 package com.smartbank.repository;
 
 import com.smartbank.entity.Transaction;
+import com.smartbank.entity.enums.TransactionStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TransactionRepo extends JpaRepository<Transaction,Long> {
-    List<Transaction> findBySourceAccount_User_IdOrTargetAccount_User_Id(Long sourceAccountUserId, Long targetAccountUserId);
+    // The redundant "transactionDate <= :date" keeps the cursor inside the index condition,
+    // so each page is a bounded backward range scan on (account, transaction_date, id).
+    // ":hotFrom" bounds the scan from below so partitions outside the hot window are pruned.
+    @Query("SELECT t FROM Transaction t WHERE t.sourceAccount.id = :accountId " +
+            "AND t.transactionDate >= :hotFrom AND t.transactionDate <= :date " +
+            "AND (t.transactionDate < :date OR t.id < :id) " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> findOutgoingBefore(@Param("accountId") Long accountId,
+                                         @Param("date") LocalDateTime date,
+                                         @Param("id") long id,
+                                         @Param("hotFrom") LocalDateTime hotFrom,
+                                         Limit limit);
+
+    @Query("SELECT t FROM Transaction t WHERE t.targetAccount.id = :accountId " +
+            "AND t.transactionDate >= :hotFrom AND t.transactionDate <= :date " +
+            "AND (t.transactionDate < :date OR t.id < :id) " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Transaction> findIncomingBefore(@Param("accountId") Long accountId,
+                                         @Param("date") LocalDateTime date,
+                                         @Param("id") long id,
+                                         @Param("hotFrom") LocalDateTime hotFrom,
+                                         Limit limit);
+
+    // One probe of the (account, transaction_date, id) index each; used as part of the history ETag.
+    @Query("SELECT t.id FROM Transaction t WHERE t.sourceAccount.id = :accountId AND t.transactionDate >= :hotFrom " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Long> findNewestOutgoingIds(@Param("accountId") Long accountId,
+                                     @Param("hotFrom") LocalDateTime hotFrom,
+                                     Limit limit);
+
+    @Query("SELECT t.id FROM Transaction t WHERE t.targetAccount.id = :accountId AND t.transactionDate >= :hotFrom " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<Long> findNewestIncomingIds(@Param("accountId") Long accountId,
+                                     @Param("hotFrom") LocalDateTime hotFrom,
+                                     Limit limit);
+
+    @Query("SELECT t FROM Transaction t WHERE (t.sourceAccount.id = :accountId OR t.targetAccount.id = :accountId) " +
+            "AND t.transactionDate >= :from AND t.transactionDate < :to")
+    List<Transaction> findByAccountBetween(@Param("accountId") Long accountId,
+                                           @Param("from") LocalDateTime from,
+                                           @Param("to") LocalDateTime to);
+
+    // Only transactions the account sent or received; other ids look the same as missing ones.
+    @Query("SELECT t FROM Transaction t WHERE t.id = :id " +
+            "AND (t.sourceAccount.id = :accountId OR t.targetAccount.id = :accountId)")
+    Optional<Transaction> findByIdForAccount(@Param("id") Long id, @Param("accountId") Long accountId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.id = :id")
+    Optional<Transaction> lockById(@Param("id") long id);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.transactionStatus = :to WHERE t.id = :id AND t.transactionStatus = :from")
+    int updateStatus(@Param("id") long id, @Param("from") TransactionStatus from, @Param("to") TransactionStatus to);
+
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.sourceAccount WHERE t.transactionStatus = :status ORDER BY t.id")
+    List<Transaction> findWithSourceByStatus(@Param("status") TransactionStatus status);
 }
@@ -0,0 +1,15 @@
+package com.smartbank.security;
+
+import java.security.Principal;
+
+/**
+ * Principal placed in the SecurityContext by {@link JwtFilter}. Ids are null for tokens issued
+ * before they were carried as claims, or before the user opened an account.
+ */
+public record AuthenticatedUser(String email, Long userId, Long accountId) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -0,0 +1,81 @@
+package com.smartbank.security;
+
+import com.smartbank.entity.Account;
+import com.smartbank.entity.User;
+import com.smartbank.exception.UserNotFoundException;
+import com.smartbank.repository.AccountRepo;
+import com.smartbank.repository.UserRepo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Resolves the caller's ids from the JWT principal. Tokens without id claims fall back to a
+ * lookup that is cached for the rest of the request.
+ */
+@Component
+@RequiredArgsConstructor
+public class CurrentUser {
+    private static final String USER_ID_ATTRIBUTE = CurrentUser.class.getName() + ".userId";
+    private static final String ACCOUNT_ID_ATTRIBUTE = CurrentUser.class.getName() + ".accountId";
+
+    private final UserRepo userRepo;
+    private final AccountRepo accountRepo;
+
+    public String email() {
+        return authentication().getName();
+    }
+
+    public Long userId() {
+        AuthenticatedUser principal = principal();
+        if (principal != null && principal.userId() != null) {
+            return principal.userId();
+        }
+        String email = email();
+        return requestCached(USER_ID_ATTRIBUTE, () -> userRepo.findByEmail(email)
+                .map(User::getId)
+                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email)));
+    }
+
+    public Optional<Long> accountId() {
+        AuthenticatedUser principal = principal();
+        if (principal != null && principal.accountId() != null) {
+            return Optional.of(principal.accountId());
+        }
+        Long userId = userId();
+        return Optional.ofNullable(requestCached(ACCOUNT_ID_ATTRIBUTE, () -> accountRepo.findAccountByUser_Id(userId)
+                .map(Account::getId)
+                .orElse(null)));
+    }
+
+    private AuthenticatedUser principal() {
+        return authentication().getPrincipal() instanceof AuthenticatedUser user ? user : null;
+    }
+
+    private static Authentication authentication() {
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T requestCached(String attribute, Supplier<T> loader) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return loader.get();
+        }
+        Object cached = attributes.getAttribute(attribute, RequestAttributes.SCOPE_REQUEST);
+        if (cached != null) {
+            return (T) cached;
+        }
+        T value = loader.get();
+        if (value != null) {
+            attributes.setAttribute(attribute, value, RequestAttributes.SCOPE_REQUEST);
+        }
+        return value;
+    }
+}
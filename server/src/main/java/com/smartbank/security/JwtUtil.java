@@ -1,52 +1,174 @@
 package com.smartbank.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Optional;
 
 @Component
 public class JwtUtil {
 
+    static final String USER_ID_CLAIM = "uid";
+    static final String ACCOUNT_ID_CLAIM = "aid";
+    static final String SCOPE_CLAIM = "scope";
+    static final String ACCOUNT_CLAIM = "acct";
+    static final String TRANSACTION_SCOPE = "transaction";
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private final Key signingKey;
+    private final JwtParser parser;
+    private final long expirationMs;
+    private final long transactionAuthorizationMs;
 
-    @Value("${jwt.expiration}")
-    private long expirationMs;
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    // Keyed by a digest so raw bearer tokens are never retained; entries expire with the token.
+    private final Cache<String, Claims> verifiedTokens;
+
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration}") long expirationMs,
+                   @Value("${jwt.cache.max-size:10000}") long cacheMaxSize,
+                   @Value("${jwt.transaction-authorization.expiration-ms:300000}") long transactionAuthorizationMs) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.expirationMs = expirationMs;
+        this.transactionAuthorizationMs = transactionAuthorizationMs;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        return remainingNanos(claims);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return remainingNanos(claims);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
-    public String generateToken(String email) {
+    public String generateToken(String email, Long userId, Long accountId) {
         return Jwts.builder()
                 .setSubject(email)
+                .claim(USER_ID_CLAIM, userId)
+                .claim(ACCOUNT_ID_CLAIM, accountId)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * Issues a token that stands in for the PIN of {@code accountNumber}, for {@code email} only,
+     * until it expires. It is not accepted as a bearer token.
+     */
+    public String generateTransactionAuthorization(String email, String accountNumber, Date expiresAt) {
+        return Jwts.builder()
+                .setSubject(email)
+                .claim(SCOPE_CLAIM, TRANSACTION_SCOPE)
+                .claim(ACCOUNT_CLAIM, accountNumber)
+                .setIssuedAt(new Date())
+                .setExpiration(expiresAt)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    public Date transactionAuthorizationExpiry() {
+        return new Date(System.currentTimeMillis() + transactionAuthorizationMs);
+    }
+
+    public boolean isTransactionAuthorized(String token, String email, String accountNumber) {
+        return verify(token)
+                .filter(claims -> TRANSACTION_SCOPE.equals(claims.get(SCOPE_CLAIM)))
+                .filter(claims -> email.equals(claims.getSubject()))
+                .filter(claims -> accountNumber.equals(claims.get(ACCOUNT_CLAIM)))
+                .isPresent();
+    }
+
+    /**
+     * Like {@link #verify(String)} but rejects scoped tokens such as transaction authorizations.
+     */
+    public Optional<Claims> verifyAccessToken(String token) {
+        return verify(token).filter(claims -> claims.get(SCOPE_CLAIM) == null);
+    }
+
+    public AuthenticatedUser toPrincipal(Claims claims) {
+        return new AuthenticatedUser(claims.getSubject(), longClaim(claims, USER_ID_CLAIM), longClaim(claims, ACCOUNT_ID_CLAIM));
+    }
+
+    /**
+     * Verifies the signature and expiry once and returns the claims. Throws {@link JwtException}
+     * for any invalid token.
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * Returns the verified claims for {@code token}, skipping signature verification when the
+     * same token was verified before and has not yet expired.
+     */
+    public Optional<Claims> verify(String token) {
+        String digest = digest(token);
+        Claims cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        try {
+            Claims claims = parseClaims(token);
+            verifiedTokens.put(digest, claims);
+            return Optional.of(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
     public String extractEmail(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public boolean isTokenValid(String token) {
+        return verify(token).isPresent();
+    }
+
+    private static Long longClaim(Claims claims, String name) {
+        Number value = claims.get(name, Number.class);
+        return value != null ? value.longValue() : null;
+    }
+
+    private static long remainingNanos(Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            return 0;
+        }
+        return Math.max(0, (expiration.getTime() - System.currentTimeMillis()) * 1_000_000L);
+    }
+
+    private static String digest(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token);
-            return true;
-        } catch (JwtException e) {
-            return false;
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 }
@@ -0,0 +1,217 @@
+package com.smartbank.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smartbank.response.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles requests with per-route token buckets keyed by client IP (anonymous routes) or by
+ * user (everything else), answering 429 with Retry-After. Auth routes also take a token from a
+ * bucket keyed by the email in the request body, so spreading guesses for one account over many
+ * addresses does not get around the limit. A global limit on requests in flight
+ * sheds load with 503 before the request thread pool is exhausted. Runs after {@link JwtFilter}
+ * so the principal is known. Idle buckets are evicted, so memory stays bounded.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final AntPathMatcher PATHS = new AntPathMatcher();
+    // Auth request bodies are a few hundred bytes; larger ones are refused before being parsed.
+    private static final int MAX_AUTH_BODY_BYTES = 16 * 1024;
+
+    private final List<Policy> policies;
+    private final Cache<String, TokenBucket> buckets;
+    private final Semaphore inFlight;
+    private final long queueTimeoutMs;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Counter shed;
+
+    public RateLimitFilter(ObjectMapper objectMapper,
+                           MeterRegistry meterRegistry,
+                           @Value("${ratelimit.login.capacity:10}") long loginCapacity,
+                           @Value("${ratelimit.login.per-minute:10}") long loginPerMinute,
+                           @Value("${ratelimit.login.email-capacity:5}") long loginEmailCapacity,
+                           @Value("${ratelimit.login.email-per-minute:5}") long loginEmailPerMinute,
+                           @Value("${ratelimit.signup.capacity:5}") long signupCapacity,
+                           @Value("${ratelimit.signup.per-minute:5}") long signupPerMinute,
+                           @Value("${ratelimit.signup.email-capacity:3}") long signupEmailCapacity,
+                           @Value("${ratelimit.signup.email-per-minute:3}") long signupEmailPerMinute,
+                           @Value("${ratelimit.otp.capacity:5}") long otpCapacity,
+                           @Value("${ratelimit.otp.per-minute:5}") long otpPerMinute,
+                           @Value("${ratelimit.otp.email-capacity:3}") long otpEmailCapacity,
+                           @Value("${ratelimit.otp.email-per-minute:3}") long otpEmailPerMinute,
+                           @Value("${ratelimit.api.capacity:100}") long apiCapacity,
+                           @Value("${ratelimit.api.per-minute:1200}") long apiPerMinute,
+                           @Value("${ratelimit.buckets.max-size:100000}") long maxBuckets,
+                           @Value("${ratelimit.buckets.idle-seconds:600}") long idleSeconds,
+                           @Value("${ratelimit.concurrency.max-requests:150}") int maxInFlight,
+                           @Value("${ratelimit.concurrency.queue-timeout-ms:50}") long queueTimeoutMs) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        // First match wins.
+        this.policies = List.of(
+                new Policy("login", "/api/v1/auth/login", false, loginCapacity, loginPerMinute,
+                        new Limit(loginEmailCapacity, loginEmailPerMinute)),
+                new Policy("signup", "/api/v1/auth/signup", false, signupCapacity, signupPerMinute,
+                        new Limit(signupEmailCapacity, signupEmailPerMinute)),
+                new Policy("otp", "/api/v1/auth/otp/**", false, otpCapacity, otpPerMinute,
+                        new Limit(otpEmailCapacity, otpEmailPerMinute)),
+                new Policy("api", "/api/**", true, apiCapacity, apiPerMinute, null));
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(Duration.ofSeconds(idleSeconds))
+                .build();
+        this.inFlight = new Semaphore(maxInFlight);
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.shed = Counter.builder("smartbank.ratelimit.shed")
+                .description("Requests rejected because too many were in flight")
+                .register(meterRegistry);
+        meterRegistry.gauge("smartbank.ratelimit.in-flight", inFlight, s -> maxInFlight - s.availablePermits());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        Policy policy = policyFor(request.getRequestURI());
+        if (policy != null) {
+            String key = policy.name() + ':' + clientKey(request, policy.perUser());
+            if (!acquire(request, response, policy.name(), "client", key, policy.limit())) {
+                return;
+            }
+            if (policy.emailLimit() != null && "POST".equals(request.getMethod())) {
+                CachedBodyRequest cached = CachedBodyRequest.read(request, MAX_AUTH_BODY_BYTES);
+                if (cached == null) {
+                    reject(request, response, HttpStatus.PAYLOAD_TOO_LARGE, "Request body is too large", 1);
+                    return;
+                }
+                request = cached;
+                String email = submittedEmail(cached.body());
+                if (email != null
+                        && !acquire(request, response, policy.name(), "email", policy.name() + ":email:" + email,
+                        policy.emailLimit())) {
+                    return;
+                }
+            }
+        }
+
+        boolean admitted;
+        try {
+            admitted = inFlight.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            shed.increment();
+            reject(request, response, HttpStatus.SERVICE_UNAVAILABLE, "Server is busy, please retry", 1);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    // Returns false after answering 429 when the bucket under key is empty.
+    private boolean acquire(HttpServletRequest request, HttpServletResponse response, String policy, String keyType,
+                            String key, Limit limit) throws IOException {
+        long waitNanos = buckets.get(key, k -> limit.newBucket()).tryAcquire(System.nanoTime());
+        if (waitNanos <= 0) {
+            return true;
+        }
+        Counter.builder("smartbank.ratelimit.rejected")
+                .description("Requests rejected by a rate-limit policy")
+                .tag("policy", policy)
+                .tag("key", keyType)
+                .register(meterRegistry)
+                .increment();
+        reject(request, response, HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded, please retry later",
+                Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+        return false;
+    }
+
+    // The email field shared by the login, signup and OTP request bodies, normalised so case does not split buckets.
+    private String submittedEmail(byte[] body) {
+        try {
+            String email = objectMapper.readTree(body).path("email").asText("").trim();
+            return email.isEmpty() ? null : email.toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            return null; // malformed bodies are rejected by the controller
+        }
+    }
+
+    private Policy policyFor(String path) {
+        for (Policy policy : policies) {
+            if (PATHS.match(policy.pattern(), path)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    // Behind a proxy, set server.forward-headers-strategy so getRemoteAddr() is the client's address.
+    private static String clientKey(HttpServletRequest request, boolean perUser) {
+        if (perUser) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+                return "user:" + user.email();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                        String message, long retryAfterSeconds) throws IOException {
+        ErrorResponse body = new ErrorResponse(LocalDateTime.now(), status.value(), status.getReasonPhrase(),
+                message, request.getRequestURI());
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    private record Policy(String name, String pattern, boolean perUser, Limit limit, Limit emailLimit) {
+        Policy(String name, String pattern, boolean perUser, long capacity, long perMinute, Limit emailLimit) {
+            this(name, pattern, perUser, new Limit(capacity, perMinute), emailLimit);
+        }
+    }
+
+    private record Limit(long capacity, long perMinute) {
+        TokenBucket newBucket() {
+            return new TokenBucket(capacity, TimeUnit.MINUTES.toNanos(1) / perMinute);
+        }
+    }
+}
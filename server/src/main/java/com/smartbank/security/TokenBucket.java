@@ -0,0 +1,33 @@
+package com.smartbank.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form: the whole state is one "theoretical arrival time",
+ * updated with a single CAS, instead of a token count plus a refill timestamp.
+ */
+final class TokenBucket {
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    TokenBucket(long capacity, long nanosPerToken) {
+        this.nanosPerToken = nanosPerToken;
+        this.burstNanos = (capacity - 1) * nanosPerToken;
+    }
+
+    /** Takes one token; returns 0 on success, otherwise the nanoseconds until a token is available. */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long start = tat == Long.MIN_VALUE || tat < nowNanos ? nowNanos : tat;
+            long waitNanos = start - nowNanos - burstNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrival.compareAndSet(tat, start + nanosPerToken)) {
+                return 0;
+            }
+        }
+    }
+}
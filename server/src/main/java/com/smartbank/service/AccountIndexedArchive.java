@@ -0,0 +1,184 @@
+package com.smartbank.service;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Layout of transaction archive files. Rows are keyed by account, so a transfer is stored once
+ * under each of its two accounts, and sorted by account, date and id. The file is a series of gzip
+ * members that each start at an account boundary, and a sidecar index records the first account
+ * and byte offset of every member, so one account's history is read by decompressing one member
+ * rather than the whole month. Concatenated members are still an ordinary gzip file.
+ */
+final class AccountIndexedArchive {
+    // Uncompressed bytes per member; an account's rows are never split, so members can be larger.
+    static final int BLOCK_BYTES = 1 << 16;
+
+    private AccountIndexedArchive() {
+    }
+
+    static Path indexPath(Path data) {
+        return data.resolveSibling(data.getFileName() + ".idx");
+    }
+
+    /**
+     * Opens a reader positioned at the member holding {@code accountId}, or at the one where it
+     * would be. Rows of smaller accounts may come first; rows of larger ones follow it.
+     */
+    static BufferedReader openAt(Path data, Index index, long accountId) throws IOException {
+        FileChannel channel = FileChannel.open(data);
+        try {
+            channel.position(index.offsetOf(accountId));
+            return new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Channels.newInputStream(channel), 1 << 16), StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static Index readIndex(Path indexFile) throws IOException {
+        List<String> lines = Files.readAllLines(indexFile, StandardCharsets.US_ASCII);
+        long[] accounts = new long[lines.size()];
+        long[] offsets = new long[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            int comma = line.indexOf(',');
+            accounts[i] = Long.parseLong(line, 0, comma, 10);
+            offsets[i] = Long.parseLong(line, comma + 1, line.length(), 10);
+        }
+        return new Index(accounts, offsets);
+    }
+
+    record Index(long[] firstAccounts, long[] offsets) {
+        long offsetOf(long accountId) {
+            int i = Arrays.binarySearch(firstAccounts, accountId);
+            // Not a member's first account: it can only be in the member before the insertion point.
+            int member = i >= 0 ? i : Math.max(0, -i - 2);
+            return offsets.length == 0 ? 0 : offsets[member];
+        }
+    }
+
+    /**
+     * Takes CSV lines starting with the account column, as written by the archive COPY, and splits
+     * them into gzip members at account boundaries. {@link #finish()} completes the last member and
+     * returns the index lines; closing the target stays with the caller.
+     */
+    static final class Writer extends OutputStream {
+        private final CountingOutputStream target;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        private final List<String> index = new ArrayList<>();
+        private GZIPOutputStream member;
+        private long memberBytes;
+        private long currentAccount = Long.MIN_VALUE;
+        private long transactions;
+
+        Writer(OutputStream target) {
+            this.target = new CountingOutputStream(target);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            line.write(b);
+            if (b == '\n') {
+                writeLine();
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            int start = off;
+            for (int i = off; i < off + len; i++) {
+                if (bytes[i] == '\n') {
+                    line.write(bytes, start, i + 1 - start);
+                    writeLine();
+                    start = i + 1;
+                }
+            }
+            line.write(bytes, start, off + len - start);
+        }
+
+        private void writeLine() throws IOException {
+            String text = line.toString(StandardCharsets.UTF_8);
+            // Columns follow TransactionPartitionDao.ARCHIVE_COLUMNS; none of them can contain a comma.
+            String[] fields = text.split(",", 8);
+            long account = Long.parseLong(fields[0]);
+            if (account != currentAccount) {
+                if (member == null || memberBytes >= BLOCK_BYTES) {
+                    startMember(account);
+                }
+                currentAccount = account;
+            }
+            if (fields[0].equals(fields[6]) || fields[6].isEmpty()) {
+                transactions++; // counted under the source account, or the target when there is none
+            }
+            line.writeTo(member);
+            memberBytes += line.size();
+            line.reset();
+        }
+
+        private void startMember(long account) throws IOException {
+            if (member != null) {
+                member.finish();
+            }
+            index.add(account + "," + target.count);
+            member = new GZIPOutputStream(target, 1 << 16);
+            memberBytes = 0;
+        }
+
+        long transactions() {
+            return transactions;
+        }
+
+        List<String> finish() throws IOException {
+            if (line.size() > 0) {
+                throw new IOException("Archive data does not end with a newline");
+            }
+            if (member != null) {
+                member.finish();
+            }
+            target.flush();
+            return index;
+        }
+    }
+
+    // Counts compressed bytes so member offsets are known; finishing a member never closes the file.
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
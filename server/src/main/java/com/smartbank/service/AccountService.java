@@ -4,9 +4,13 @@ import com.smartbank.dto.AccountRequestDTO;
 import com.smartbank.dto.AccountResponseDTO;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface AccountService{
     AccountResponseDTO createAccount(AccountRequestDTO accountDTO);
     AccountResponseDTO getAccountByUserId();
+    String getAccountETag();
+    Optional<AccountResponseDTO> findAccountView(Long userId);
     List<AccountResponseDTO> getAllAccounts();
+    AccountResponseDTO configureBalanceStripes(String accountNumber, int stripes);
 }
@@ -1,21 +1,25 @@
 package com.smartbank.service;
 
+import com.smartbank.cache.AccountCache;
 import com.smartbank.dto.AccountRequestDTO;
 import com.smartbank.dto.AccountResponseDTO;
 import com.smartbank.entity.Account;
 import com.smartbank.entity.User;
-import com.smartbank.entity.enums.AccountType;
-import com.smartbank.exception.UserNotFoundException;
+import com.smartbank.event.AccountChangedEvent;
+import com.smartbank.mapper.AccountMapper;
 import com.smartbank.repository.AccountRepo;
 import com.smartbank.repository.UserRepo;
+import com.smartbank.security.CurrentUser;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Slf4j
@@ -23,23 +27,25 @@ import java.util.List;
 public class AccountServiceImpl implements AccountService {
     private final AccountRepo accountRepo;
     private final UserRepo userRepo;
-    private final ModelMapper modelMapper;
+    private final AccountMapper accountMapper;
     private final PasswordEncoder passwordEncoder;
+    private final CurrentUser currentUser;
+    private final AccountCache accountCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BalanceStripeManager balanceStripes;
+    private final AccountLockManager lockManager;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public AccountResponseDTO createAccount(AccountRequestDTO accountDTO){
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepo.findByEmail(email)
-                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
-        Account account = new Account();
+        User user = userRepo.getReferenceById(currentUser.userId());
+        Account account = accountMapper.toEntity(accountDTO);
         account.setAccountNumber(generateRandomAccountNumber());
-        account.setAccountType(AccountType.valueOf(accountDTO.getAccountType()));
-        account.setBalance(accountDTO.getBalance());
-        account.setBranch(accountDTO.getBranch());
         account.setPin(passwordEncoder.encode(accountDTO.getPin()));
         account.setUser(user);
         Account savedAccount = accountRepo.save(account);
-        return mapToResponseDTO(savedAccount);
+        eventPublisher.publishEvent(new AccountChangedEvent(savedAccount.getId(), user.getId()));
+        return accountMapper.toResponseDTO(savedAccount);
     }
     private String generateRandomAccountNumber() {
         long min = 100000000000L; // 12-digit minimum
@@ -49,31 +55,58 @@ public class AccountServiceImpl implements AccountService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public AccountResponseDTO getAccountByUserId() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = userRepo.findByEmail(email)
-                .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
-        Long userId = user.getId();
-        Account account = accountRepo.findAccountByUser_Id(userId)
+        Long userId = currentUser.userId();
+        return findAccountView(userId)
                 .orElseThrow(() -> new RuntimeException("Account not found with ID: " + userId));
+    }
+
+    // A missing account is not cached, so the view appears as soon as the account is created.
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<AccountResponseDTO> findAccountView(Long userId) {
+        return Optional.ofNullable(accountCache.get(userId, () -> accountRepo.findAccountByUser_Id(userId)
+                .map(this::toResponseDTO)
+                .orElse(null)));
+    }
 
-        return modelMapper.map(account, AccountResponseDTO.class);
+    // Served from the cached view when there is one, so a revalidation that matches touches no rows.
+    @Override
+    @Transactional(readOnly = true)
+    public String getAccountETag() {
+        Long userId = currentUser.userId();
+        AccountResponseDTO cached = accountCache.peek(userId);
+        if (cached != null) {
+            return cached.getEtag();
+        }
+        return accountRepo.findRevisionByUserId(userId)
+                .map(view -> accountETag(view.getId(), view.getRevision()))
+                .orElse(null);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<AccountResponseDTO> getAllAccounts() {
         return accountRepo.findAll().stream()
-                .map(account -> modelMapper.map(account, AccountResponseDTO.class))
+                .map(this::toResponseDTO)
                 .toList();
     }
-    private AccountResponseDTO mapToResponseDTO(Account account) {
-        AccountResponseDTO dto = new AccountResponseDTO();
-        dto.setId(account.getId());
-        dto.setAccountNumber(account.getAccountNumber());
-        dto.setAccountType(account.getAccountType().name());
-        dto.setBalance(account.getBalance());
-        dto.setBranch(account.getBranch());
-        dto.setUserId(account.getUser().getId());
+
+    @Override
+    public AccountResponseDTO configureBalanceStripes(String accountNumber, int stripes) {
+        return lockManager.withRetry(() -> transactionTemplate.execute(status ->
+                toResponseDTO(balanceStripes.configure(accountNumber, stripes))));
+    }
+
+    private AccountResponseDTO toResponseDTO(Account account) {
+        AccountResponseDTO dto = accountMapper.toResponseDTO(account);
+        dto.setEtag(accountETag(account.getId(), balanceStripes.revision(account)));
+        dto.setBalance(balanceStripes.reportedBalance(account));
         return dto;
     }
+
+    private static String accountETag(Long accountId, long revision) {
+        return "a" + accountId + "-" + revision;
+    }
 }
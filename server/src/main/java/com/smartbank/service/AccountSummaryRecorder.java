@@ -0,0 +1,121 @@
+package com.smartbank.service;
+
+import com.smartbank.entity.Account;
+import com.smartbank.entity.Transaction;
+import com.smartbank.entity.enums.TransactionStatus;
+import com.smartbank.entity.enums.TransactionType;
+import com.smartbank.repository.AccountSummaryWriter;
+import com.smartbank.repository.AccountSummaryWriter.SummaryDelta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Turns transaction status changes into daily summary deltas and writes them in the caller's
+ * transaction. Deltas are merged per summary row and written in key order, so two transactions
+ * touching the same accounts always lock their summary rows in the same order.
+ */
+@Component
+@RequiredArgsConstructor
+public class AccountSummaryRecorder {
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparingLong(Key::accountId)
+            .thenComparing(Key::date).thenComparingInt(Key::stripe);
+
+    private final AccountSummaryWriter summaryWriter;
+
+    public void record(Transaction tx, TransactionStatus from, TransactionStatus to) {
+        record(List.of(tx), from, to);
+    }
+
+    /**
+     * Records {@code transactions} moving from status {@code from} to {@code to}. A null {@code from}
+     * means the transactions are new; a null {@code to} means they were deleted.
+     */
+    public void record(Collection<Transaction> transactions, TransactionStatus from, TransactionStatus to) {
+        Map<Key, Totals> totals = new TreeMap<>(KEY_ORDER);
+        for (Transaction tx : transactions) {
+            LocalDate date = tx.getTransactionDate().toLocalDate();
+            boolean deposit = tx.getTransactionType() == TransactionType.DEPOSIT;
+            Account source = tx.getSourceAccount();
+            Totals sourceTotals = totals.computeIfAbsent(key(source, date, deposit), k -> new Totals());
+            sourceTotals.add(tx, tx.getTransactionType(), from, to, deposit);
+
+            if (tx.getTransactionType() == TransactionType.TRANSFER && tx.getTargetAccount() != null) {
+                Totals targetTotals = totals.computeIfAbsent(key(tx.getTargetAccount(), date, true), k -> new Totals());
+                targetTotals.add(tx, TransactionType.TRANSFER, from, to, true);
+            }
+        }
+
+        List<SummaryDelta> deltas = new ArrayList<>(totals.size());
+        totals.forEach((key, t) -> deltas.add(new SummaryDelta(key.accountId(), key.date(), key.stripe(),
+                t.deposits, t.withdrawals, t.transfers, t.pending, t.completed, t.failed, t.inflow, t.outflow)));
+        summaryWriter.upsertAll(deltas);
+    }
+
+    // Credits to a striped account land on a random summary stripe, mirroring its balance stripes.
+    private static Key key(Account account, LocalDate date, boolean credit) {
+        int stripe = credit && account.isStriped()
+                ? ThreadLocalRandom.current().nextInt(account.getBalanceStripes())
+                : 0;
+        return new Key(account.getId(), date, stripe);
+    }
+
+    private record Key(long accountId, LocalDate date, int stripe) {
+    }
+
+    private static final class Totals {
+        long deposits;
+        long withdrawals;
+        long transfers;
+        long pending;
+        long completed;
+        long failed;
+        BigDecimal inflow = BigDecimal.ZERO;
+        BigDecimal outflow = BigDecimal.ZERO;
+
+        void add(Transaction tx, TransactionType type, TransactionStatus from, TransactionStatus to, boolean credit) {
+            int created = from == null ? 1 : to == null ? -1 : 0;
+            switch (type) {
+                case DEPOSIT -> deposits += created;
+                case WITHDRAWAL -> withdrawals += created;
+                case TRANSFER -> transfers += created;
+            }
+            count(from, -1);
+            count(to, 1);
+
+            // Money only counts once the transaction has completed.
+            BigDecimal moved = BigDecimal.ZERO;
+            if (to == TransactionStatus.COMPLETED) {
+                moved = moved.add(tx.getAmount());
+            }
+            if (from == TransactionStatus.COMPLETED) {
+                moved = moved.subtract(tx.getAmount());
+            }
+            if (credit) {
+                inflow = inflow.add(moved);
+            } else {
+                outflow = outflow.add(moved);
+            }
+        }
+
+        private void count(TransactionStatus status, int delta) {
+            if (status == null) {
+                return;
+            }
+            switch (status) {
+                case PENDING -> pending += delta;
+                case COMPLETED -> completed += delta;
+                case FAILED -> failed += delta;
+            }
+        }
+    }
+}
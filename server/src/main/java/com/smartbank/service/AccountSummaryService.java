@@ -0,0 +1,11 @@
+package com.smartbank.service;
+
+import com.smartbank.dto.AccountSummaryDTO;
+
+import java.time.LocalDate;
+
+public interface AccountSummaryService {
+    AccountSummaryDTO getSummary(Integer days);
+
+    int rebuild(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,105 @@
+package com.smartbank.service;
+
+import com.smartbank.dto.AccountSummaryDTO;
+import com.smartbank.dto.DailySummaryDTO;
+import com.smartbank.repository.AccountDailySummaryRepo;
+import com.smartbank.repository.AccountSummaryWriter;
+import com.smartbank.repository.TransactionArchiveRepo;
+import com.smartbank.security.CurrentUser;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AccountSummaryServiceImpl implements AccountSummaryService {
+    // Rebuilds run one chunk per transaction so the summary table lock is held briefly.
+    private static final int REBUILD_CHUNK_DAYS = 31;
+
+    private final AccountDailySummaryRepo summaryRepo;
+    private final AccountSummaryWriter summaryWriter;
+    private final CurrentUser currentUser;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionArchiveRepo archiveRepo;
+
+    @Value("${account.summary.default-days:30}")
+    private int defaultDays;
+
+    @Value("${account.summary.max-days:366}")
+    private int maxDays;
+
+    @Value("${account.summary.rebuild-days:2}")
+    private int rebuildDays;
+
+    @Override
+    @Transactional(readOnly = true)
+    public AccountSummaryDTO getSummary(Integer days) {
+        int span = days == null ? defaultDays : days;
+        if (span < 1 || span > maxDays) {
+            throw new IllegalArgumentException("days must be between 1 and " + maxDays);
+        }
+        Long accountId = currentUser.accountId()
+                .orElseThrow(() -> new EntityNotFoundException("Account not found"));
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusDays(span - 1L);
+        List<DailySummaryDTO> daily = summaryRepo.findDaily(accountId, from, to);
+        return new AccountSummaryDTO(from, to, total(daily), daily);
+    }
+
+    private static DailySummaryDTO total(List<DailySummaryDTO> daily) {
+        DailySummaryDTO total = new DailySummaryDTO(null, 0L, 0L, 0L, 0L, 0L, 0L, BigDecimal.ZERO, BigDecimal.ZERO);
+        for (DailySummaryDTO day : daily) {
+            total.setDepositCount(total.getDepositCount() + day.getDepositCount());
+            total.setWithdrawalCount(total.getWithdrawalCount() + day.getWithdrawalCount());
+            total.setTransferCount(total.getTransferCount() + day.getTransferCount());
+            total.setPendingCount(total.getPendingCount() + day.getPendingCount());
+            total.setCompletedCount(total.getCompletedCount() + day.getCompletedCount());
+            total.setFailedCount(total.getFailedCount() + day.getFailedCount());
+            total.setInflow(total.getInflow().add(day.getInflow()));
+            total.setOutflow(total.getOutflow().add(day.getOutflow()));
+        }
+        return total;
+    }
+
+    /**
+     * Recomputes the summaries for the inclusive range {@code [from, to]} from the transaction table.
+     * Used to backfill history and to repair drift, e.g. after manual data fixes.
+     */
+    @Override
+    public int rebuild(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Invalid rebuild range");
+        }
+        // Archived transactions are gone from the table, so rebuilding their days would zero them out.
+        archiveRepo.findArchivedUntil().filter(from::isBefore).ifPresent(until -> {
+            throw new IllegalArgumentException("Transactions before " + until + " are archived and cannot be rebuilt");
+        });
+        int rows = 0;
+        for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(REBUILD_CHUNK_DAYS)) {
+            LocalDate chunkStart = start;
+            LocalDate chunkEnd = start.plusDays(REBUILD_CHUNK_DAYS).isAfter(to.plusDays(1))
+                    ? to.plusDays(1)
+                    : start.plusDays(REBUILD_CHUNK_DAYS);
+            Integer inserted = transactionTemplate.execute(status -> summaryWriter.rebuild(chunkStart, chunkEnd));
+            rows += inserted != null ? inserted : 0;
+        }
+        log.info("Rebuilt account summaries from {} to {} ({} rows)", from, to, rows);
+        return rows;
+    }
+
+    @Scheduled(cron = "${account.summary.rebuild-cron:-}")
+    public void rebuildRecent() {
+        LocalDate today = LocalDate.now();
+        rebuild(today.minusDays(rebuildDays - 1L), today);
+    }
+}
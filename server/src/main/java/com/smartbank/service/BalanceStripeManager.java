@@ -0,0 +1,167 @@
+package com.smartbank.service;
+
+import com.smartbank.entity.Account;
+import com.smartbank.entity.AccountBalanceStripe;
+import com.smartbank.repository.AccountBalanceStripeRepo;
+import com.smartbank.repository.AccountRepo;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Hot-account mode. Credits to a striped account are added to one of its balance stripes instead of
+ * the account row, so concurrent credits only contend when they pick the same stripe. Debits fold the
+ * stripes into {@link Account#getBalance()} under the row lock, and {@link #foldAll()} does the same
+ * in the background so the stored balance never lags far behind.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BalanceStripeManager {
+    private final AccountRepo accountRepo;
+    private final AccountBalanceStripeRepo stripeRepo;
+    private final AccountLockManager lockManager;
+    private final TransactionTemplate transactionTemplate;
+
+    // Account numbers known to be striped. A stale entry only costs a fallback to the row lock.
+    private final Set<String> stripedAccounts = ConcurrentHashMap.newKeySet();
+
+    @Value("${account.stripes.max:64}")
+    private int maxStripes;
+
+    public boolean isStriped(String accountNumber) {
+        return accountNumber != null && stripedAccounts.contains(accountNumber);
+    }
+
+    /**
+     * Credits {@code amount} to a free stripe of {@code account}, starting from a random one and
+     * skipping stripes held by concurrent credits. Must run inside a transaction. Returns false if the
+     * account has no stripes, in which case the caller credits the account row instead.
+     */
+    public boolean credit(Account account, BigDecimal amount) {
+        Integer stripes = account.getBalanceStripes();
+        if (stripes == null || stripes <= 0) {
+            return false;
+        }
+        int offset = ThreadLocalRandom.current().nextInt(stripes);
+        if (stripeRepo.creditUnlockedStripe(account.getId(), offset, stripes, amount) == 1) {
+            return true;
+        }
+        // Every stripe is busy; queue behind one of them rather than the account row.
+        return stripeRepo.creditStripe(account.getId(), offset, amount) == 1;
+    }
+
+    /**
+     * Moves the stripe balances of a locked account into its row balance and returns the amount
+     * moved. Must run inside the transaction holding the account row lock.
+     */
+    public BigDecimal fold(Account account) {
+        BigDecimal folded = BigDecimal.ZERO;
+        for (AccountBalanceStripe stripe : stripeRepo.lockAllByAccountId(account.getId())) {
+            if (stripe.getBalance().signum() != 0) {
+                folded = folded.add(stripe.getBalance());
+                stripe.setBalance(BigDecimal.ZERO);
+            }
+        }
+        if (folded.signum() != 0) {
+            account.setBalance(account.getBalance().add(folded));
+        }
+        return folded;
+    }
+
+    // Row revision plus stripe revisions. Read it before reportedBalance so a credit landing in
+    // between leaves a stale revision with a fresh balance, never the other way round.
+    public long revision(Account account) {
+        if (!account.isStriped()) {
+            return account.getRevision();
+        }
+        return account.getRevision() + stripeRepo.sumRevisionByAccountId(account.getId());
+    }
+
+    // Row balance plus credits not yet folded; what clients should see as the account balance.
+    public BigDecimal reportedBalance(Account account) {
+        if (!account.isStriped()) {
+            return account.getBalance();
+        }
+        return account.getBalance().add(stripeRepo.sumBalanceByAccountId(account.getId()));
+    }
+
+    /**
+     * Sets the number of stripes for an account; 0 switches hot mode off. Existing stripes are folded
+     * first so no credit is lost when stripes are removed. Must run inside a transaction.
+     */
+    public Account configure(String accountNumber, int stripes) {
+        if (stripes < 0 || stripes > maxStripes) {
+            throw new IllegalArgumentException("Stripe count must be between 0 and " + maxStripes);
+        }
+        Account account = lockManager.lockInOrder(List.of(accountNumber)).get(accountNumber);
+        if (account == null) {
+            throw new EntityNotFoundException("Account not found");
+        }
+        fold(account);
+
+        List<AccountBalanceStripe> existing = stripeRepo.lockAllByAccountId(account.getId());
+        List<AccountBalanceStripe> removed = new ArrayList<>();
+        boolean[] present = new boolean[stripes];
+        for (AccountBalanceStripe stripe : existing) {
+            if (stripe.getStripe() < stripes) {
+                present[stripe.getStripe()] = true;
+            } else {
+                removed.add(stripe);
+            }
+        }
+        // Carry the revisions of dropped stripes over so the account revision never goes back.
+        account.setRevision(account.getRevision() + 1
+                + removed.stream().mapToLong(AccountBalanceStripe::getRevision).sum());
+        stripeRepo.deleteAll(removed);
+        List<AccountBalanceStripe> added = new ArrayList<>();
+        for (int i = 0; i < stripes; i++) {
+            if (!present[i]) {
+                AccountBalanceStripe stripe = new AccountBalanceStripe();
+                stripe.setAccount(account);
+                stripe.setStripe(i);
+                added.add(stripe);
+            }
+        }
+        stripeRepo.saveAll(added);
+
+        account.setBalanceStripes(stripes == 0 ? null : stripes);
+        if (stripes == 0) {
+            stripedAccounts.remove(accountNumber);
+        } else {
+            stripedAccounts.add(accountNumber);
+        }
+        return account;
+    }
+
+    @Scheduled(fixedDelayString = "${account.stripes.fold-interval-ms:5000}")
+    public void foldAll() {
+        Set<String> seen = new HashSet<>();
+        for (Account hot : accountRepo.findByBalanceStripesGreaterThan(0)) {
+            String accountNumber = hot.getAccountNumber();
+            seen.add(accountNumber);
+            stripedAccounts.add(accountNumber);
+            try {
+                lockManager.withRetry(() -> transactionTemplate.execute(status -> {
+                    Account account = lockManager.lockInOrder(List.of(accountNumber)).get(accountNumber);
+                    return account != null && account.isStriped() ? fold(account) : BigDecimal.ZERO;
+                }));
+            } catch (RuntimeException ex) {
+                log.warn("Could not fold balance stripes of account {}: {}", accountNumber, ex.getMessage());
+            }
+        }
+        stripedAccounts.retainAll(seen);
+    }
+}
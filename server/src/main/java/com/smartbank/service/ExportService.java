@@ -0,0 +1,9 @@
+package com.smartbank.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+    void exportAccounts(ExportFormat format, OutputStream out) throws IOException;
+    void exportUsers(ExportFormat format, OutputStream out) throws IOException;
+}
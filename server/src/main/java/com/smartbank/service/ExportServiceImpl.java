@@ -0,0 +1,129 @@
+package com.smartbank.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.smartbank.dto.AccountResponseDTO;
+import com.smartbank.dto.UserResponseDTO;
+import com.smartbank.entity.Account;
+import com.smartbank.entity.User;
+import com.smartbank.mapper.AccountMapper;
+import com.smartbank.mapper.UserMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Streams whole tables to the client through a server-side cursor. Rows are mapped and written
+ * one at a time and the persistence context is cleared every fetch, so memory stays flat.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportServiceImpl implements ExportService {
+    private static final String[] ACCOUNT_COLUMNS = {"id", "accountNumber", "accountType", "balance", "branch", "userId"};
+    private static final String[] USER_COLUMNS = {"id", "name", "email", "countryCode", "phoneNumber", "address"};
+
+    private final EntityManager entityManager;
+    private final AccountMapper accountMapper;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+    private final BalanceStripeManager balanceStripes;
+
+    @Value("${export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAccounts(ExportFormat format, OutputStream out) throws IOException {
+        stream("SELECT a FROM Account a ORDER BY a.id", Account.class, this::toResponseDTO,
+                format, ACCOUNT_COLUMNS, dto -> new Object[]{dto.getId(), dto.getAccountNumber(),
+                        dto.getAccountType(), dto.getBalance(), dto.getBranch(), dto.getUserId()}, out);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportUsers(ExportFormat format, OutputStream out) throws IOException {
+        // The inverse one-to-one is always loaded eagerly; fetch it in the same row to avoid N+1 selects.
+        stream("SELECT u FROM User u LEFT JOIN FETCH u.account ORDER BY u.id", User.class, userMapper::toResponseDTO,
+                format, USER_COLUMNS, dto -> new Object[]{dto.getId(), dto.getName(), dto.getEmail(),
+                        dto.getCountryCode(), dto.getPhoneNumber(), dto.getAddress()}, out);
+    }
+
+    private AccountResponseDTO toResponseDTO(Account account) {
+        AccountResponseDTO dto = accountMapper.toResponseDTO(account);
+        dto.setBalance(balanceStripes.reportedBalance(account));
+        return dto;
+    }
+
+    private <E, D> void stream(String query, Class<E> type, Function<E, D> mapper, ExportFormat format,
+                               String[] columns, Function<D, Object[]> row, OutputStream out) throws IOException {
+        Session session = entityManager.unwrap(Session.class);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        SequenceWriter json = format == ExportFormat.NDJSON
+                ? objectMapper.writer().withRootValueSeparator("\n").writeValues(writer)
+                : null;
+        if (format == ExportFormat.CSV) {
+            writeCsvRow(writer, columns);
+        }
+
+        try (ScrollableResults<E> results = session.createQuery(query, type)
+                .setReadOnly(true)
+                .setFetchSize(fetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            long count = 0;
+            while (results.next()) {
+                D dto = mapper.apply(results.get());
+                if (json != null) {
+                    json.write(dto);
+                } else {
+                    writeCsvRow(writer, row.apply(dto));
+                }
+                if (++count % fetchSize == 0) {
+                    session.clear();
+                    if (json != null) {
+                        json.flush();
+                    }
+                    writer.flush();
+                }
+            }
+        }
+        if (json != null) {
+            json.flush();
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvRow(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escapeCsv(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private static String escapeCsv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,47 @@
+package com.smartbank.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks the idempotency claim bound to the current thread as committed from inside every read-write
+ * transaction the claimed request starts, so the marker commits or rolls back with the request's
+ * own writes. Registered with the transaction manager by Spring Boot.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyCommitMarker implements TransactionExecutionListener {
+    private final JdbcTemplate jdbcTemplate;
+    private final ThreadLocal<Long> currentClaim = new ThreadLocal<>();
+
+    <T> T runClaimed(Long claimId, Supplier<T> work) {
+        currentClaim.set(claimId);
+        try {
+            return work.get();
+        } finally {
+            currentClaim.remove();
+        }
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+        Long claimId = currentClaim.get();
+        if (claimId == null || beginFailure != null || transaction.isReadOnly() || !transaction.isNewTransaction()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                jdbcTemplate.update("UPDATE idempotency_record SET committed = true WHERE id = ? AND NOT committed", claimId);
+            }
+        });
+    }
+}
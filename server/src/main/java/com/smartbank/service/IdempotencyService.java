@@ -0,0 +1,14 @@
+package com.smartbank.service;
+
+import java.util.function.Supplier;
+
+public interface IdempotencyService {
+    /**
+     * Runs {@code work} once per idempotency key and user. Later calls with the same key return the
+     * stored result, and concurrent calls wait for the first one instead of running again.
+     */
+    <T> IdempotentResult<T> execute(String key, String requestFingerprint, Class<T> type, Supplier<T> work);
+
+    record IdempotentResult<T>(T value, boolean replayed) {
+    }
+}
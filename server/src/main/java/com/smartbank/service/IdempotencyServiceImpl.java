@@ -0,0 +1,255 @@
+package com.smartbank.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smartbank.entity.IdempotencyRecord;
+import com.smartbank.exception.IdempotencyConflictException;
+import com.smartbank.repository.IdempotencyRecordRepo;
+import com.smartbank.security.CurrentUser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Two-level dedupe store: a bounded in-memory cache of recent results in front of the
+ * {@code idempotency_record} table. Duplicates on this node wait on the in-flight future;
+ * duplicates on other nodes see the claim row and poll it until the response is stored. A claim is
+ * only released when the request failed without committing anything; otherwise duplicates that
+ * arrive while it is unfinished get a conflict rather than running the work again.
+ */
+@Service
+@Slf4j
+public class IdempotencyServiceImpl implements IdempotencyService {
+    private static final long POLL_INTERVAL_MS = 50;
+
+    private final IdempotencyRecordRepo recordRepo;
+    private final CurrentUser currentUser;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyCommitMarker commitMarker;
+    private final Cache<String, StoredResponse> cache;
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+    private final long waitTimeoutMs;
+
+    public IdempotencyServiceImpl(IdempotencyRecordRepo recordRepo,
+                                  CurrentUser currentUser,
+                                  ObjectMapper objectMapper,
+                                  TransactionTemplate transactionTemplate,
+                                  IdempotencyCommitMarker commitMarker,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${idempotency.cache.max-size:100000}") long maxSize,
+                                  @Value("${idempotency.ttl-seconds:86400}") long ttlSeconds,
+                                  @Value("${idempotency.wait-timeout-ms:10000}") long waitTimeoutMs) {
+        this.recordRepo = recordRepo;
+        this.currentUser = currentUser;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.commitMarker = commitMarker;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+    }
+
+    @Override
+    public <T> IdempotentResult<T> execute(String key, String requestFingerprint, Class<T> type, Supplier<T> work) {
+        if (key.isBlank() || key.length() > 255) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to 255 characters");
+        }
+        Long userId = currentUser.userId();
+        String cacheKey = userId + ":" + key;
+        String requestHash = sha256(requestFingerprint);
+
+        StoredResponse cached = cache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return replay(cached, requestHash, type);
+        }
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            return replay(await(running), requestHash, type);
+        }
+        try {
+            Outcome outcome = claimOrReplay(userId, key, requestHash, type, work);
+            cache.put(cacheKey, outcome.response());
+            mine.complete(outcome.response());
+            return outcome.replayed()
+                    ? replay(outcome.response(), requestHash, type)
+                    : new IdempotentResult<>(type.cast(outcome.response().value()), false);
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    private Outcome claimOrReplay(Long userId, String key, String requestHash, Class<?> type, Supplier<?> work) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+        while (true) {
+            Optional<IdempotencyRecord> existing = recordRepo.findByUserIdAndIdempotencyKey(userId, key);
+            if (existing.isPresent()) {
+                IdempotencyRecord record = existing.get();
+                if (record.getExpiresAt().isBefore(LocalDateTime.now())) {
+                    transactionTemplate.executeWithoutResult(status -> recordRepo.deleteById(record.getId()));
+                    continue;
+                }
+                if (record.getResponse() != null) {
+                    return new Outcome(new StoredResponse(record.getRequestHash(), deserialize(record.getResponse(), type)), true);
+                }
+                if (!record.getRequestHash().equals(requestHash)) {
+                    throw reusedKey();
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IdempotencyConflictException(record.isCommitted()
+                            ? "A request with this Idempotency-Key was applied but its response is not available"
+                            : "A request with this Idempotency-Key is still in progress");
+                }
+                sleep();
+                continue;
+            }
+
+            IdempotencyRecord claim = tryClaim(userId, key, requestHash);
+            if (claim != null) {
+                return new Outcome(run(claim, work), false);
+            }
+        }
+    }
+
+    private IdempotencyRecord tryClaim(Long userId, String key, String requestHash) {
+        IdempotencyRecord claim = new IdempotencyRecord();
+        claim.setUserId(userId);
+        claim.setIdempotencyKey(key);
+        claim.setRequestHash(requestHash);
+        claim.setCreatedAt(LocalDateTime.now());
+        claim.setExpiresAt(claim.getCreatedAt().plus(ttl));
+        try {
+            return transactionTemplate.execute(status -> recordRepo.saveAndFlush(claim));
+        } catch (DataIntegrityViolationException ex) {
+            return null; // another node claimed the key first
+        }
+    }
+
+    private StoredResponse run(IdempotencyRecord claim, Supplier<?> work) {
+        Object value;
+        try {
+            value = commitMarker.runClaimed(claim.getId(), work);
+        } catch (RuntimeException ex) {
+            // Requests that rolled back are forgotten so the client can retry with the same key.
+            // Once anything committed the claim stays, and retries get a conflict instead of a second run.
+            transactionTemplate.executeWithoutResult(status -> recordRepo.deleteUncommitted(claim.getId()));
+            throw ex;
+        }
+        try {
+            String response = serialize(value);
+            transactionTemplate.executeWithoutResult(status -> recordRepo.storeResponse(claim.getId(), response));
+        } catch (RuntimeException ex) {
+            // The work has committed; report its result and leave the claim unfinished.
+            log.warn("Could not store the response for idempotency claim {}: {}", claim.getId(), ex.getMessage());
+        }
+        return new StoredResponse(claim.getRequestHash(), value);
+    }
+
+    private <T> IdempotentResult<T> replay(StoredResponse stored, String requestHash, Class<T> type) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw reusedKey();
+        }
+        return new IdempotentResult<>(type.cast(stored.value()), true);
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> running) {
+        try {
+            return running.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        Integer purged = transactionTemplate.execute(status -> recordRepo.deleteExpired(LocalDateTime.now()));
+        if (purged != null && purged > 0) {
+            log.debug("Purged {} expired idempotency records", purged);
+        }
+    }
+
+    private static IdempotencyConflictException reusedKey() {
+        return new IdempotencyConflictException("Idempotency-Key was already used for a different request");
+    }
+
+    private String serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store idempotent response", e);
+        }
+    }
+
+    private <T> T deserialize(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read idempotent response", e);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, Object value) {
+    }
+
+    private record Outcome(StoredResponse response, boolean replayed) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.smartbank.service;
+
+import com.smartbank.entity.MailOutboxMessage;
+import com.smartbank.entity.enums.OutboxStatus;
+import com.smartbank.repository.MailOutboxRepo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+@RequiredArgsConstructor
+public class MailOutbox {
+    private final MailOutboxRepo outboxRepo;
+
+    /**
+     * Queues a plain-text mail. Call it inside the transaction whose commit should send the mail;
+     * a rollback discards it.
+     */
+    public void enqueue(String recipient, String subject, String body) {
+        MailOutboxMessage message = new MailOutboxMessage();
+        message.setRecipient(recipient);
+        message.setSubject(subject);
+        message.setBody(body);
+        message.setStatus(OutboxStatus.PENDING);
+        message.setCreatedAt(LocalDateTime.now());
+        message.setNextAttemptAt(message.getCreatedAt());
+        outboxRepo.save(message);
+    }
+}
@@ -0,0 +1,229 @@
+package com.smartbank.service;
+
+import com.smartbank.entity.MailOutboxMessage;
+import com.smartbank.entity.enums.OutboxStatus;
+import com.smartbank.repository.MailOutboxRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains {@code mail_outbox} in batches. A batch is claimed with {@code SKIP LOCKED} and leased by
+ * pushing {@code next_attempt_at} forward, so several nodes can dispatch without sending a row
+ * twice and no transaction stays open while SMTP is slow. Each batch goes out over one SMTP
+ * connection. Failed rows are retried with jittered exponential backoff and marked DEAD after
+ * {@code mail.outbox.max-attempts}. Outcomes are written back only if the row still carries this
+ * claim's attempt number, so a node whose lease ran out cannot overwrite a newer claim.
+ */
+@Component
+@Slf4j
+public class MailOutboxDispatcher {
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final MailOutboxRepo outboxRepo;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter dead;
+    private final Timer batchTimer;
+    private final Timer deliveryDelay;
+    private final AtomicLong backlog = new AtomicLong();
+
+    @Value("${mail.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${mail.outbox.backoff-ms:2000}")
+    private long backoffMs;
+
+    @Value("${mail.outbox.max-backoff-ms:600000}")
+    private long maxBackoffMs;
+
+    @Value("${mail.outbox.lease-ms:600000}")
+    private long leaseMs;
+
+    @Value("${mail.outbox.sent-retention-hours:24}")
+    private long sentRetentionHours;
+
+    @Value("${spring.mail.properties.mail.smtp.connectiontimeout:5000}")
+    private long smtpConnectionTimeoutMs;
+
+    @Value("${spring.mail.properties.mail.smtp.timeout:10000}")
+    private long smtpTimeoutMs;
+
+    @Value("${spring.mail.properties.mail.smtp.writetimeout:10000}")
+    private long smtpWriteTimeoutMs;
+
+    public MailOutboxDispatcher(MailOutboxRepo outboxRepo,
+                                JavaMailSender mailSender,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry) {
+        this.outboxRepo = outboxRepo;
+        this.mailSender = mailSender;
+        this.transactionTemplate = transactionTemplate;
+        this.sent = counter(meterRegistry, "sent");
+        this.retried = counter(meterRegistry, "retry");
+        this.dead = counter(meterRegistry, "dead");
+        this.batchTimer = Timer.builder("smartbank.mail.outbox.batch")
+                .description("Time to send one outbox batch over SMTP")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.deliveryDelay = Timer.builder("smartbank.mail.outbox.delay")
+                .description("Time from enqueueing a mail to handing it to the SMTP server")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gauge("smartbank.mail.outbox.backlog", backlog);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("smartbank.mail.outbox.messages")
+                .description("Outbox mails processed, by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // A batch still sending when its lease runs out is claimed and sent again by another node.
+    @PostConstruct
+    void checkLease() {
+        long slowestBatchMs = smtpConnectionTimeoutMs + batchSize * (smtpTimeoutMs + smtpWriteTimeoutMs);
+        if (leaseMs <= slowestBatchMs) {
+            log.warn("mail.outbox.lease-ms={} is shorter than a batch of {} at the SMTP timeouts ({} ms); using {} ms",
+                    leaseMs, batchSize, slowestBatchMs, 2 * slowestBatchMs);
+            leaseMs = 2 * slowestBatchMs;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        List<MailOutboxMessage> batch;
+        do {
+            batch = claim();
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        } while (batch.size() == batchSize);
+        backlog.set(outboxRepo.countByStatus(OutboxStatus.PENDING));
+    }
+
+    private List<MailOutboxMessage> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<MailOutboxMessage> due = outboxRepo.lockDue(now, batchSize);
+            for (MailOutboxMessage message : due) {
+                message.setAttempts(message.getAttempts() + 1);
+                message.setNextAttemptAt(now.plus(Duration.ofMillis(leaseMs)));
+            }
+            return due;
+        });
+    }
+
+    private void send(List<MailOutboxMessage> batch) {
+        SimpleMailMessage[] mails = batch.stream().map(MailOutboxDispatcher::toMail).toArray(SimpleMailMessage[]::new);
+        Map<Object, Exception> failures = new HashMap<>();
+        long start = System.nanoTime();
+        try {
+            mailSender.send(mails);
+        } catch (MailSendException e) {
+            failures.putAll(e.getFailedMessages());
+            if (failures.isEmpty()) {
+                for (SimpleMailMessage mail : mails) {
+                    failures.put(mail, e);
+                }
+            }
+        } catch (MailException e) {
+            // Connection or authentication failure: nothing in the batch was sent.
+            for (SimpleMailMessage mail : mails) {
+                failures.put(mail, e);
+            }
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < batch.size(); i++) {
+                MailOutboxMessage message = batch.get(i);
+                Exception failure = failures.get(mails[i]);
+                if (failure == null) {
+                    if (complete(message, OutboxStatus.SENT, message.getNextAttemptAt(), null, now)) {
+                        sent.increment();
+                        deliveryDelay.record(Duration.between(message.getCreatedAt(), now));
+                    }
+                } else if (message.getAttempts() >= maxAttempts) {
+                    if (complete(message, OutboxStatus.DEAD, message.getNextAttemptAt(), failure.toString(), null)) {
+                        dead.increment();
+                        log.warn("Mail {} to {} dead-lettered after {} attempts: {}",
+                                message.getId(), message.getRecipient(), message.getAttempts(), failure.getMessage());
+                    }
+                } else {
+                    LocalDateTime retryAt = now.plus(Duration.ofMillis(backoff(message.getAttempts())));
+                    if (complete(message, OutboxStatus.PENDING, retryAt, failure.toString(), null)) {
+                        retried.increment();
+                    }
+                }
+            }
+        });
+        if (!failures.isEmpty()) {
+            log.info("Sent {} of {} outbox mails", batch.size() - failures.size(), batch.size());
+        }
+    }
+
+    private boolean complete(MailOutboxMessage message, OutboxStatus status, LocalDateTime nextAttemptAt,
+                             String error, LocalDateTime sentAt) {
+        int updated = outboxRepo.completeAttempt(message.getId(), message.getAttempts(), status, nextAttemptAt,
+                error == null ? null : truncate(error), sentAt);
+        if (updated == 0) {
+            log.warn("Mail {} was claimed again after its lease expired; attempt {} is not recorded",
+                    message.getId(), message.getAttempts());
+        }
+        return updated > 0;
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.purge-interval-ms:3600000}")
+    public void purgeSent() {
+        LocalDateTime before = LocalDateTime.now().minusHours(sentRetentionHours);
+        Integer purged = transactionTemplate.execute(status -> outboxRepo.deleteSentBefore(before));
+        if (purged != null && purged > 0) {
+            log.debug("Purged {} sent outbox mails", purged);
+        }
+    }
+
+    private long backoff(int attempts) {
+        long ceiling = Math.min(maxBackoffMs, backoffMs << Math.min(attempts - 1, 20));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private static SimpleMailMessage toMail(MailOutboxMessage message) {
+        SimpleMailMessage mail = new SimpleMailMessage();
+        mail.setTo(message.getRecipient());
+        mail.setSubject(message.getSubject());
+        mail.setText(message.getBody());
+        return mail;
+    }
+
+    private static String truncate(String error) {
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
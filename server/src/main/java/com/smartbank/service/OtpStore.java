@@ -0,0 +1,174 @@
+package com.smartbank.service;
+
+import com.smartbank.entity.PasswordResetToken;
+import com.smartbank.exception.TooManyRequestsException;
+import com.smartbank.repository.PasswordResetTokenRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Password-reset OTPs. {@code password_reset_token} is the durable record; live tokens issued on
+ * this node are also kept in memory, filed into a timing wheel by expiry so each tick drops one
+ * slot of expired entries without scanning the rest. A lookup that misses memory (another node
+ * issued the token, or this one restarted) falls back to the indexed table.
+ */
+@Component
+@Slf4j
+public class OtpStore {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int PURGE_CHUNK = 5000;
+
+    private final PasswordResetTokenRepo tokenRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final long slotMs;
+    private final int maxOutstanding;
+    private final int maxCached;
+    private final Map<String, LiveToken> live = new ConcurrentHashMap<>();
+    private final Queue<String>[] wheel;
+    private long lastTick;
+
+    @SuppressWarnings("unchecked")
+    public OtpStore(PasswordResetTokenRepo tokenRepo,
+                    TransactionTemplate transactionTemplate,
+                    @Value("${security.otp.ttl-seconds:600}") long ttlSeconds,
+                    @Value("${security.otp.wheel-slot-ms:1000}") long slotMs,
+                    @Value("${security.otp.max-outstanding-per-email:3}") int maxOutstanding,
+                    @Value("${security.otp.cache.max-size:100000}") int maxCached) {
+        this.tokenRepo = tokenRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.slotMs = slotMs;
+        this.maxOutstanding = maxOutstanding;
+        this.maxCached = maxCached;
+        // One lap of the wheel covers the whole TTL, so a slot never holds entries from two laps.
+        this.wheel = new Queue[(int) (ttl.toMillis() / slotMs) + 2];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.lastTick = System.currentTimeMillis() / slotMs;
+    }
+
+    /**
+     * Creates a token for {@code email} and returns its OTP. Must run inside a transaction; the token
+     * becomes visible in memory once that transaction commits. Throws {@link TooManyRequestsException}
+     * when the email already has the maximum number of outstanding OTPs.
+     */
+    public String issue(String email) {
+        LocalDateTime now = LocalDateTime.now();
+        tokenRepo.lockEmail(email);
+        if (tokenRepo.countByEmailAndUsedFalseAndExpiryAfter(email, now) >= maxOutstanding) {
+            long retryAfter = tokenRepo.findEarliestOutstandingExpiry(email, now)
+                    .map(expiry -> Math.max(1, Duration.between(now, expiry).toSeconds()))
+                    .orElse(1L);
+            throw new TooManyRequestsException("Too many outstanding OTPs for this email, please retry later", retryAfter);
+        }
+
+        PasswordResetToken token = new PasswordResetToken();
+        token.setEmail(email);
+        token.setOtp(String.valueOf(RANDOM.nextInt(900000) + 100000));
+        token.setExpiry(now.plus(ttl));
+        PasswordResetToken saved = tokenRepo.save(token);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remember(saved);
+            }
+        });
+        return saved.getOtp();
+    }
+
+    /**
+     * Marks the matching live token as used and returns its id, or empty if there is none. Must run
+     * inside a transaction, so a rollback leaves the token usable.
+     */
+    public Optional<Long> consume(String email, String otp) {
+        LocalDateTime now = LocalDateTime.now();
+        LiveToken cached = live.remove(key(email, otp));
+        if (cached != null && cached.expiresAtMillis() > System.currentTimeMillis()
+                && tokenRepo.markUsed(cached.id(), now) == 1) {
+            return Optional.of(cached.id());
+        }
+        return tokenRepo.findFirstByEmailAndOtpAndUsedFalseAndExpiryAfter(email, otp, now)
+                .filter(token -> tokenRepo.markUsed(token.getId(), now) == 1)
+                .map(PasswordResetToken::getId);
+    }
+
+    private void remember(PasswordResetToken token) {
+        if (live.size() >= maxCached) {
+            return; // the table still has it
+        }
+        long expiresAt = token.getExpiry().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String key = key(token.getEmail(), token.getOtp());
+        live.put(key, new LiveToken(token.getId(), expiresAt));
+        file(key, expiresAt);
+    }
+
+    // Filed one slot late so the entry has expired by the time its slot is swept.
+    private void file(String key, long expiresAtMillis) {
+        wheel[(int) ((expiresAtMillis / slotMs + 1) % wheel.length)].add(key);
+    }
+
+    @Scheduled(fixedRateString = "${security.otp.wheel-slot-ms:1000}")
+    public synchronized void tick() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / slotMs;
+        List<String> early = new ArrayList<>();
+        // Catches up on slots missed while the scheduler was busy, at most one full lap.
+        for (long t = Math.max(lastTick + 1, currentTick - wheel.length + 1); t <= currentTick; t++) {
+            Queue<String> slot = wheel[(int) (t % wheel.length)];
+            String key;
+            while ((key = slot.poll()) != null) {
+                LiveToken kept = live.computeIfPresent(key, (k, token) -> token.expiresAtMillis() <= now ? null : token);
+                if (kept != null) {
+                    early.add(key); // only after a clock jump; file it again
+                }
+            }
+        }
+        for (String key : early) {
+            LiveToken token = live.get(key);
+            if (token != null) {
+                file(key, token.expiresAtMillis());
+            }
+        }
+        lastTick = currentTick;
+    }
+
+    @Scheduled(fixedDelayString = "${security.otp.purge-interval-ms:600000}")
+    public void purge() {
+        LocalDateTime now = LocalDateTime.now();
+        long total = 0;
+        Integer deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> tokenRepo.deleteUsedOrExpired(now, PURGE_CHUNK));
+            total += deleted != null ? deleted : 0;
+        } while (deleted != null && deleted == PURGE_CHUNK);
+        if (total > 0) {
+            log.debug("Purged {} used or expired password reset tokens", total);
+        }
+    }
+
+    private static String key(String email, String otp) {
+        return email + ':' + otp;
+    }
+
+    private record LiveToken(long id, long expiresAtMillis) {
+    }
+}
@@ -1,64 +1,48 @@
 package com.smartbank.service;
 
 import com.smartbank.dto.PasswordResetVerifyDTO;
-import com.smartbank.entity.PasswordResetToken;
 import com.smartbank.entity.User;
-import com.smartbank.repository.PasswordResetTokenRepo;
 import com.smartbank.repository.UserRepo;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDateTime;
-import java.util.Random;
 
 @Service
 @RequiredArgsConstructor
 public class PasswordResetServiceImpl implements PasswordResetService{
+    private static final String OTP_SUBJECT = "SmartBank Password Reset OTP";
+
     private final UserRepo userRepo;
-    private final PasswordResetTokenRepo tokenRepo;
+    private final OtpStore otpStore;
     private final PasswordEncoder passwordEncoder;
-    private final JavaMailSender mailSender;
+    private final MailOutbox mailOutbox;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public void sendResetOtp(String email){
-        String otp = String.valueOf(new Random().nextInt(900000) + 100000);
-        PasswordResetToken token = new PasswordResetToken();
-        token.setEmail(email);
-        token.setOtp(otp);
-        token.setExpiry(LocalDateTime.now().plusMinutes(10));
-        tokenRepo.save(token);
-        sendEmail(email,"Your OTP is: " + otp);
+        // The mail is sent by MailOutboxDispatcher once this commits, off the request thread.
+        transactionTemplate.executeWithoutResult(status -> {
+            String otp = otpStore.issue(email);
+            mailOutbox.enqueue(email, OTP_SUBJECT, "Your OTP is: " + otp);
+        });
     }
 
 
     @Override
     public void verifyOtpAndResetPassword(PasswordResetVerifyDTO dto) {
-        PasswordResetToken token = tokenRepo.findByEmailAndOtpAndUsedFalse(dto.getEmail(), dto.getOtp())
-                .orElseThrow(() -> new IllegalArgumentException("Invalid or expired OTP"));
-
-        if (token.getExpiry().isBefore(LocalDateTime.now())) {
-            throw new IllegalArgumentException("OTP expired");
-        }
-
-        User user = userRepo.findByEmail(dto.getEmail())
-                .orElseThrow(() -> new EntityNotFoundException("User not found"));
-
-        user.setPassword(passwordEncoder.encode(dto.getNewPassword()));
-        token.setUsed(true);
-        userRepo.save(user);
-        tokenRepo.save(token);
-    }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (otpStore.consume(dto.getEmail(), dto.getOtp()).isEmpty()) {
+                throw new IllegalArgumentException("Invalid or expired OTP");
+            }
 
-    private void sendEmail(String email, String content) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(email);
-        message.setSubject("SmartBank Password Reset OTP");
-        message.setText(content);
+            User user = userRepo.findByEmail(dto.getEmail())
+                    .orElseThrow(() -> new EntityNotFoundException("User not found"));
 
-        mailSender.send(message);
+            user.setPassword(passwordEncoder.encode(dto.getNewPassword()));
+            userRepo.save(user);
+        });
     }
 }
@@ -0,0 +1,14 @@
+package com.smartbank.service;
+
+import com.smartbank.dto.TransactionResponseDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface TransactionArchiveService {
+    /**
+     * The current user's transactions dated within {@code [from, to]}, newest first, read from
+     * archive files for archived months and from the database for the rest.
+     */
+    List<TransactionResponseDTO> getTransactions(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,170 @@
+package com.smartbank.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.smartbank.dto.TransactionResponseDTO;
+import com.smartbank.entity.TransactionArchive;
+import com.smartbank.mapper.TransactionMapper;
+import com.smartbank.repository.TransactionArchiveRepo;
+import com.smartbank.repository.TransactionRepo;
+import com.smartbank.security.CurrentUser;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads history beyond the hot window. Archive files are read through their account index, so a
+ * request decompresses about one block per archived month; requests are still bounded by
+ * {@code transaction.archive.max-range-days} and {@code transaction.archive.max-rows}.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionArchiveServiceImpl implements TransactionArchiveService {
+    private static final Comparator<TransactionResponseDTO> NEWEST_FIRST = Comparator
+            .comparing(TransactionResponseDTO::getTransactionDate).thenComparing(TransactionResponseDTO::getId).reversed();
+
+    private final TransactionArchiveRepo archiveRepo;
+    private final TransactionRepo transactionRepo;
+    private final TransactionMapper transactionMapper;
+    private final CurrentUser currentUser;
+    // Archive files are never rewritten once recorded, so their indexes can be kept.
+    private final Cache<Path, AccountIndexedArchive.Index> indexes = Caffeine.newBuilder().maximumSize(256).build();
+
+    @Value("${transaction.archive.max-range-days:366}")
+    private int maxRangeDays;
+
+    @Value("${transaction.archive.max-rows:10000}")
+    private int maxRows;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TransactionResponseDTO> getTransactions(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Invalid date range");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new IllegalArgumentException("Date range must not exceed " + maxRangeDays + " days");
+        }
+        Long accountId = currentUser.accountId().orElse(null);
+        if (accountId == null) {
+            return List.of();
+        }
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+
+        List<TransactionResponseDTO> result = new ArrayList<>();
+        for (TransactionArchive archive : archiveRepo.findOverlapping(from, to.plusDays(1))) {
+            readArchive(archive, accountId, start, end, result);
+        }
+        // A month is either archived or still in the table, never both, so nothing is read twice.
+        transactionRepo.findByAccountBetween(accountId, start, end)
+                .forEach(tx -> add(result, transactionMapper.toResponseDTO(tx)));
+        result.sort(NEWEST_FIRST);
+        return result;
+    }
+
+    private void readArchive(TransactionArchive archive, long accountId, LocalDateTime start, LocalDateTime end,
+                             List<TransactionResponseDTO> result) {
+        Path path = Path.of(archive.getPath());
+        Path indexFile = AccountIndexedArchive.indexPath(path);
+        try {
+            if (Files.exists(indexFile)) {
+                readIndexed(path, indexFile, accountId, start, end, result);
+            } else {
+                scanLegacy(path, accountId, start, end, result);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read transaction archive " + archive.getPartitionName(), e);
+        }
+    }
+
+    // Decompresses only from the block holding the account, and stops once its rows pass the range.
+    private void readIndexed(Path path, Path indexFile, long accountId, LocalDateTime start, LocalDateTime end,
+                             List<TransactionResponseDTO> result) throws IOException {
+        AccountIndexedArchive.Index index = indexes.getIfPresent(path);
+        if (index == null) {
+            index = AccountIndexedArchive.readIndex(indexFile);
+            indexes.put(path, index);
+        }
+        try (BufferedReader reader = AccountIndexedArchive.openAt(path, index, accountId)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Columns follow TransactionPartitionDao.ARCHIVE_COLUMNS; none of them can contain a comma.
+                String[] fields = line.split(",", -1);
+                long account = Long.parseLong(fields[0]);
+                if (account < accountId) {
+                    continue;
+                }
+                if (account > accountId) {
+                    break;
+                }
+                LocalDateTime date = LocalDateTime.parse(fields[5]);
+                if (!date.isBefore(end)) {
+                    break;
+                }
+                if (!date.isBefore(start)) {
+                    add(result, toDto(fields, 1, date));
+                }
+            }
+        }
+    }
+
+    // Files archived before the account index existed: whole month in id order, with a header row.
+    private void scanLegacy(Path path, long accountId, LocalDateTime start, LocalDateTime end,
+                            List<TransactionResponseDTO> result) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(path), 1 << 16), StandardCharsets.UTF_8))) {
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",", -1);
+                if (!isAccount(fields[5], accountId) && !isAccount(fields[6], accountId)) {
+                    continue;
+                }
+                LocalDateTime date = LocalDateTime.parse(fields[4]);
+                if (date.isBefore(start) || !date.isBefore(end)) {
+                    continue;
+                }
+                add(result, toDto(fields, 0, date));
+            }
+        }
+    }
+
+    private static TransactionResponseDTO toDto(String[] fields, int first, LocalDateTime date) {
+        TransactionResponseDTO dto = new TransactionResponseDTO();
+        dto.setId(Long.parseLong(fields[first]));
+        dto.setTransactionType(fields[first + 1]);
+        dto.setTransactionStatus(fields[first + 2]);
+        dto.setAmount(new BigDecimal(fields[first + 3]));
+        dto.setTransactionDate(date);
+        return dto;
+    }
+
+    private void add(List<TransactionResponseDTO> result, TransactionResponseDTO dto) {
+        if (result.size() >= maxRows) {
+            throw new IllegalArgumentException("More than " + maxRows + " transactions in range; narrow the dates");
+        }
+        result.add(dto);
+    }
+
+    private static boolean isAccount(String field, long accountId) {
+        return !field.isEmpty() && Long.parseLong(field) == accountId;
+    }
+}
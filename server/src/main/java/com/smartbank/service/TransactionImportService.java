@@ -0,0 +1,15 @@
+package com.smartbank.service;
+
+import com.smartbank.dto.ImportJobDTO;
+
+import java.io.InputStream;
+
+public interface TransactionImportService {
+    /**
+     * Streams a transaction CSV into the database. With {@code resumeJobId} the lines already
+     * committed by that job are skipped, so the same input can be fed again after an interruption.
+     */
+    ImportJobDTO importTransactions(String source, InputStream input, Long resumeJobId);
+
+    ImportJobDTO getJob(Long id);
+}
@@ -0,0 +1,409 @@
+package com.smartbank.service;
+
+import com.smartbank.dto.ImportJobDTO;
+import com.smartbank.entity.ImportJob;
+import com.smartbank.entity.enums.ImportJobStatus;
+import com.smartbank.entity.enums.TransactionStatus;
+import com.smartbank.entity.enums.TransactionType;
+import com.smartbank.mapper.ImportJobMapper;
+import com.smartbank.repository.AccountIdView;
+import com.smartbank.repository.AccountRepo;
+import com.smartbank.repository.ImportJobRepo;
+import com.smartbank.repository.TransactionCopyWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports historical transactions from CSV. The input is read line by line and loaded in chunks;
+ * each chunk is validated against {@code Account}, copied into {@code bank_transactions} and
+ * checkpointed in the same database transaction. Imported history does not change balances.
+ */
+@Service
+@Slf4j
+public class TransactionImportServiceImpl implements TransactionImportService {
+    private static final String TYPE = "transaction_type";
+    private static final String STATUS = "transaction_status";
+    private static final String AMOUNT = "amount";
+    private static final String DATE = "transaction_date";
+    private static final String SOURCE = "source_account_number";
+    private static final String TARGET = "target_account_number";
+    private static final int MAX_RECORDED_ERRORS = 50;
+    private static final int MAX_CACHED_ACCOUNTS = 100_000;
+
+    private final ImportJobRepo importJobRepo;
+    private final AccountRepo accountRepo;
+    private final TransactionCopyWriter copyWriter;
+    private final AccountSummaryService accountSummaryService;
+    private final ImportJobMapper importJobMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionPartitionManager partitionManager;
+    private final Counter importedRows;
+    private final Counter rejectedRows;
+    private final int chunkSize;
+
+    public TransactionImportServiceImpl(ImportJobRepo importJobRepo,
+                                        AccountRepo accountRepo,
+                                        TransactionCopyWriter copyWriter,
+                                        AccountSummaryService accountSummaryService,
+                                        ImportJobMapper importJobMapper,
+                                        TransactionTemplate transactionTemplate,
+                                        TransactionPartitionManager partitionManager,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${import.chunk-size:10000}") int chunkSize) {
+        this.importJobRepo = importJobRepo;
+        this.accountRepo = accountRepo;
+        this.copyWriter = copyWriter;
+        this.accountSummaryService = accountSummaryService;
+        this.importJobMapper = importJobMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.partitionManager = partitionManager;
+        this.chunkSize = chunkSize;
+        this.importedRows = Counter.builder("smartbank.import.rows").tag("outcome", "imported").register(meterRegistry);
+        this.rejectedRows = Counter.builder("smartbank.import.rows").tag("outcome", "rejected").register(meterRegistry);
+    }
+
+    @Override
+    public ImportJobDTO importTransactions(String source, InputStream input, Long resumeJobId) {
+        ImportJob job = resumeJobId == null ? startJob(source) : resumeJob(resumeJobId);
+        Map<String, Long> accountIds = new HashMap<>();
+        LocalDate archivedUntil = partitionManager.archivedUntil().orElse(null);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, Integer> columns = readHeader(reader.readLine());
+            long line = 0;
+            while (line < job.getLinesProcessed()) {
+                if (reader.readLine() == null) {
+                    throw new IllegalArgumentException("Input ends at line " + line
+                            + " but the job already processed " + job.getLinesProcessed() + " lines");
+                }
+                line++;
+            }
+
+            List<String> chunk = new ArrayList<>(chunkSize);
+            String text;
+            while ((text = reader.readLine()) != null) {
+                chunk.add(text);
+                if (chunk.size() == chunkSize) {
+                    job = loadChunk(job, chunk, columns, accountIds, archivedUntil);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                job = loadChunk(job, chunk, columns, accountIds, archivedUntil);
+            }
+        } catch (IOException e) {
+            throw fail(job, new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            throw fail(job, e);
+        }
+
+        if (job.getMinTransactionDate() != null) {
+            accountSummaryService.rebuild(job.getMinTransactionDate(), job.getMaxTransactionDate());
+        }
+        job.setStatus(ImportJobStatus.COMPLETED);
+        job.setFinishedAt(LocalDateTime.now());
+        ImportJob completed = job;
+        ImportJob finished = transactionTemplate.execute(status -> importJobRepo.save(completed));
+        log.info("Import job {} completed: {} rows imported, {} rejected",
+                finished.getId(), finished.getRowsImported(), finished.getRowsRejected());
+        return importJobMapper.toDTO(finished);
+    }
+
+    @Override
+    public ImportJobDTO getJob(Long id) {
+        return importJobRepo.findById(id)
+                .map(importJobMapper::toDTO)
+                .orElseThrow(() -> new EntityNotFoundException("Import job not found"));
+    }
+
+    private ImportJob startJob(String source) {
+        ImportJob job = new ImportJob();
+        job.setSource(source);
+        job.setStatus(ImportJobStatus.RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job.setUpdatedAt(job.getStartedAt());
+        return transactionTemplate.execute(status -> importJobRepo.save(job));
+    }
+
+    private ImportJob resumeJob(Long id) {
+        return transactionTemplate.execute(status -> {
+            ImportJob job = importJobRepo.lockById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Import job not found"));
+            if (job.getStatus() == ImportJobStatus.COMPLETED) {
+                throw new IllegalArgumentException("Import job " + id + " has already completed");
+            }
+            job.setStatus(ImportJobStatus.RUNNING);
+            job.setFinishedAt(null);
+            return job;
+        });
+    }
+
+    private ImportJob loadChunk(ImportJob job, List<String> lines, Map<String, Integer> columns,
+                                Map<String, Long> accountIds, LocalDate archivedUntil) {
+        long firstLine = job.getLinesProcessed() + 1;
+        List<String[]> rows = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            rows.add(line.isBlank() ? null : parseCsvLine(line));
+        }
+        resolveAccounts(rows, columns, accountIds);
+
+        StringBuilder csv = new StringBuilder(lines.size() * 64);
+        List<String> errors = new ArrayList<>();
+        Set<Long> touched = new HashSet<>();
+        LocalDate minDate = job.getMinTransactionDate();
+        LocalDate maxDate = job.getMaxTransactionDate();
+        long accepted = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            String[] row = rows.get(i);
+            if (row == null) {
+                continue;
+            }
+            try {
+                LocalDateTime date = appendRow(csv, row, columns, accountIds, archivedUntil, touched);
+                LocalDate day = date.toLocalDate();
+                minDate = minDate == null || day.isBefore(minDate) ? day : minDate;
+                maxDate = maxDate == null || day.isAfter(maxDate) ? day : maxDate;
+                accepted++;
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                errors.add("line " + (firstLine + i) + ": " + e.getMessage());
+            }
+        }
+
+        LocalDate chunkMin = minDate;
+        LocalDate chunkMax = maxDate;
+        long loaded = accepted;
+        if (loaded > 0) {
+            // Partition DDL locks the parent table, so it runs before the chunk's transaction.
+            partitionManager.ensureMonths(chunkMin, chunkMax);
+        }
+        ImportJob saved = transactionTemplate.execute(status -> {
+            // The row lock also stops two importers from resuming the same job at once.
+            ImportJob current = importJobRepo.lockById(job.getId())
+                    .orElseThrow(() -> new EntityNotFoundException("Import job not found"));
+            if (current.getLinesProcessed() != job.getLinesProcessed()) {
+                throw new IllegalStateException("Import job " + job.getId() + " was advanced by another importer");
+            }
+            if (loaded > 0) {
+                copyWriter.copyIn(csv);
+                // Imported rows may be older than an account's newest one; the revision moves its history ETag.
+                accountRepo.bumpRevisions(touched);
+            }
+            current.setLinesProcessed(current.getLinesProcessed() + lines.size());
+            current.setRowsImported(current.getRowsImported() + loaded);
+            current.setRowsRejected(current.getRowsRejected() + errors.size());
+            current.setErrors(appendErrors(current.getErrors(), current.getRowsRejected() - errors.size(), errors));
+            current.setMinTransactionDate(chunkMin);
+            current.setMaxTransactionDate(chunkMax);
+            current.setUpdatedAt(LocalDateTime.now());
+            return current;
+        });
+
+        importedRows.increment(loaded);
+        rejectedRows.increment(errors.size());
+        log.info("Import job {}: {} lines processed, {} imported, {} rejected",
+                saved.getId(), saved.getLinesProcessed(), saved.getRowsImported(), saved.getRowsRejected());
+        return saved;
+    }
+
+    private void resolveAccounts(List<String[]> rows, Map<String, Integer> columns, Map<String, Long> accountIds) {
+        if (accountIds.size() > MAX_CACHED_ACCOUNTS) {
+            accountIds.clear();
+        }
+        Set<String> missing = new HashSet<>();
+        for (String[] row : rows) {
+            if (row == null) {
+                continue;
+            }
+            for (String column : List.of(SOURCE, TARGET)) {
+                String number = field(row, columns, column);
+                if (number != null && !accountIds.containsKey(number)) {
+                    missing.add(number);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (AccountIdView view : accountRepo.findIdsByAccountNumberIn(missing)) {
+            accountIds.put(view.getAccountNumber(), view.getId());
+        }
+    }
+
+    // Validates one row and appends it to the COPY buffer; returns its transaction date.
+    private static LocalDateTime appendRow(StringBuilder csv, String[] row, Map<String, Integer> columns,
+                                           Map<String, Long> accountIds, LocalDate archivedUntil,
+                                           Set<Long> touched) {
+        TransactionType type = parseEnum(TransactionType.class, required(row, columns, TYPE), TYPE);
+        String statusValue = field(row, columns, STATUS);
+        TransactionStatus status = statusValue == null
+                ? TransactionStatus.COMPLETED
+                : parseEnum(TransactionStatus.class, statusValue, STATUS);
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(required(row, columns, AMOUNT));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid amount");
+        }
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("amount must be positive");
+        }
+        String dateValue = required(row, columns, DATE);
+        LocalDateTime date = dateValue.length() == 10
+                ? LocalDate.parse(dateValue).atStartOfDay()
+                : LocalDateTime.parse(dateValue);
+        if (archivedUntil != null && date.isBefore(archivedUntil.atStartOfDay())) {
+            throw new IllegalArgumentException("transaction date falls in an archived month");
+        }
+
+        Long sourceId = accountIds.get(required(row, columns, SOURCE));
+        if (sourceId == null) {
+            throw new IllegalArgumentException("unknown source account");
+        }
+        Long targetId = null;
+        String targetNumber = field(row, columns, TARGET);
+        if (type == TransactionType.TRANSFER) {
+            if (targetNumber == null) {
+                throw new IllegalArgumentException("transfer without target account");
+            }
+            targetId = accountIds.get(targetNumber);
+            if (targetId == null) {
+                throw new IllegalArgumentException("unknown target account");
+            }
+        } else if (targetNumber != null) {
+            throw new IllegalArgumentException("target account only allowed for transfers");
+        }
+
+        csv.append(type.name()).append(',')
+                .append(status.name()).append(',')
+                .append(amount.toPlainString()).append(',')
+                .append(date).append(',')
+                .append(sourceId).append(',');
+        if (targetId != null) {
+            csv.append(targetId);
+        }
+        csv.append('\n');
+        touched.add(sourceId);
+        if (targetId != null) {
+            touched.add(targetId);
+        }
+        return date;
+    }
+
+    private static Map<String, Integer> readHeader(String header) {
+        if (header == null) {
+            throw new IllegalArgumentException("Input is empty");
+        }
+        String[] names = parseCsvLine(header);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            columns.put(names[i].trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : List.of(TYPE, AMOUNT, DATE, SOURCE)) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("Missing column " + column);
+            }
+        }
+        return columns;
+    }
+
+    private static String required(String[] row, Map<String, Integer> columns, String column) {
+        String value = field(row, columns, column);
+        if (value == null) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        return value;
+    }
+
+    private static String field(String[] row, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= row.length) {
+            return null;
+        }
+        String value = row[index].trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String column) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid " + column);
+        }
+    }
+
+    // Splits one CSV record; quoted fields may contain commas and doubled quotes but not line breaks.
+    static String[] parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(String[]::new);
+    }
+
+    private static String appendErrors(String existing, long alreadyRejected, List<String> errors) {
+        if (errors.isEmpty() || alreadyRejected >= MAX_RECORDED_ERRORS) {
+            return existing;
+        }
+        StringBuilder all = new StringBuilder(existing == null ? "" : existing);
+        for (int i = 0; i < errors.size() && alreadyRejected + i < MAX_RECORDED_ERRORS; i++) {
+            all.append(errors.get(i)).append('\n');
+        }
+        return all.toString();
+    }
+
+    private RuntimeException fail(ImportJob job, RuntimeException cause) {
+        log.warn("Import job {} failed after {} lines: {}", job.getId(), job.getLinesProcessed(), cause.getMessage());
+        try {
+            transactionTemplate.executeWithoutResult(status -> importJobRepo.findById(job.getId()).ifPresent(current -> {
+                current.setStatus(ImportJobStatus.FAILED);
+                current.setErrors(appendErrors(current.getErrors(), 0, List.of("aborted: " + cause.getMessage())));
+                current.setUpdatedAt(LocalDateTime.now());
+            }));
+        } catch (RuntimeException e) {
+            log.warn("Could not mark import job {} as failed", job.getId(), e);
+        }
+        return cause;
+    }
+}
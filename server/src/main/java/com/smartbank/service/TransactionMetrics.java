@@ -0,0 +1,112 @@
+package com.smartbank.service;
+
+import com.smartbank.exception.InsufficientBalanceException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.PessimisticLockException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Timers for the transaction write path: one per phase ({@code smartbank.transaction.phase}) and
+ * one per finished request ({@code smartbank.transaction.duration}) tagged with its outcome.
+ */
+@Component
+public class TransactionMetrics {
+    public static final String PHASE_METRIC = "smartbank.transaction.phase";
+    public static final String DURATION_METRIC = "smartbank.transaction.duration";
+
+    public enum Phase {
+        PIN_VERIFY, LOCK, PENDING_INSERT, BALANCE_UPDATE, COMMIT
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
+
+    public TransactionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Phase phase : Phase.values()) {
+            phaseTimers.put(phase, Timer.builder(PHASE_METRIC)
+                    .description("Time spent in each phase of a transaction")
+                    .tag("phase", phase.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    public <T> T time(Phase phase, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            phaseTimers.get(phase).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void time(Phase phase, Runnable work) {
+        time(phase, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /** Times the commit of the current transaction, from the start of commit until it completes. */
+    public void timeCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long start;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                start = System.nanoTime();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (start != 0 && status == STATUS_COMMITTED) {
+                    phaseTimers.get(Phase.COMMIT).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        });
+    }
+
+    public void recordOutcome(String type, String outcome, long startNanos) {
+        Timer.builder(DURATION_METRIC)
+                .description("Time to process a transaction request, by type and outcome")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Bounded set of tag values; anything unexpected is just FAILED.
+    public static String outcome(Throwable failure) {
+        if (failure == null) {
+            return "COMPLETED";
+        }
+        if (failure instanceof InsufficientBalanceException) {
+            return "INSUFFICIENT_BALANCE";
+        }
+        if (failure instanceof SecurityException) {
+            return "INVALID_PIN"; // also covers a rejected authorization token
+        }
+        if (failure instanceof PessimisticLockingFailureException || failure instanceof PessimisticLockException
+                || failure instanceof LockTimeoutException) {
+            return "LOCK_TIMEOUT";
+        }
+        if (failure instanceof EntityNotFoundException) {
+            return "NOT_FOUND";
+        }
+        return "FAILED";
+    }
+}
@@ -0,0 +1,177 @@
+package com.smartbank.service;
+
+import com.smartbank.entity.TransactionArchive;
+import com.smartbank.repository.TransactionArchiveRepo;
+import com.smartbank.repository.TransactionPartitionDao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Keeps monthly partitions of {@code bank_transactions} ahead of the calendar and moves months
+ * past the retention window into gzipped CSV files, indexed by account, under
+ * {@code transaction.partitions.archive-dir}.
+ * Does nothing until the table has been converted with {@code db/partition-bank-transactions.sql}.
+ */
+@Component
+@Slf4j
+public class TransactionPartitionManager {
+    private static final LocalDateTime ALL_TIME = LocalDateTime.of(1, 1, 1, 0, 0);
+
+    private final TransactionPartitionDao partitionDao;
+    private final TransactionArchiveRepo archiveRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final int premakeMonths;
+    private final int retentionMonths;
+    private final Path archiveDir;
+    // Checked at startup and by maintain(); until then history is not cut off by the retention window.
+    private volatile boolean partitioned;
+
+    public TransactionPartitionManager(TransactionPartitionDao partitionDao,
+                                       TransactionArchiveRepo archiveRepo,
+                                       TransactionTemplate transactionTemplate,
+                                       @Value("${transaction.partitions.premake-months:3}") int premakeMonths,
+                                       @Value("${transaction.partitions.retention-months:24}") int retentionMonths,
+                                       @Value("${transaction.partitions.archive-dir:archive/transactions}") String archiveDir) {
+        this.partitionDao = partitionDao;
+        this.archiveRepo = archiveRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.premakeMonths = premakeMonths;
+        this.retentionMonths = retentionMonths;
+        this.archiveDir = Path.of(archiveDir);
+    }
+
+    /**
+     * Start of the hot window: the current month and the {@code retention-months - 1} before it.
+     * History queries stay at or after this instant so Postgres prunes every older partition.
+     * While the table is not partitioned nothing is archived, so the window covers all time.
+     */
+    public LocalDateTime hotFrom() {
+        if (retentionMonths <= 0 || !partitioned) {
+            return ALL_TIME;
+        }
+        return YearMonth.now().minusMonths(retentionMonths - 1L).atDay(1).atStartOfDay();
+    }
+
+    public Optional<LocalDate> archivedUntil() {
+        return archiveRepo.findArchivedUntil();
+    }
+
+    /** Creates any missing monthly partitions covering {@code [from, to]}. */
+    public void ensureMonths(LocalDate from, LocalDate to) {
+        if (!partitionDao.isPartitioned()) {
+            return;
+        }
+        Set<YearMonth> existing = new HashSet<>(partitionDao.listMonths());
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+            if (!existing.contains(month)) {
+                YearMonth created = month;
+                transactionTemplate.executeWithoutResult(status -> partitionDao.create(created));
+                log.info("Created transaction partition {}", TransactionPartitionDao.partitionName(created));
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createUpcoming() {
+        try {
+            partitioned = partitionDao.isPartitioned();
+            LocalDate today = LocalDate.now();
+            ensureMonths(today, today.plusMonths(premakeMonths));
+        } catch (DataAccessException e) {
+            log.warn("Could not create upcoming transaction partitions", e);
+        }
+    }
+
+    @Scheduled(cron = "${transaction.partitions.maintenance-cron:0 15 3 * * *}")
+    public void maintain() {
+        createUpcoming();
+        if (retentionMonths <= 0 || !partitioned) {
+            return;
+        }
+        YearMonth firstHot = YearMonth.from(hotFrom());
+        List<YearMonth> expired = partitionDao.listMonths().stream().filter(firstHot::isAfter).sorted().toList();
+        for (YearMonth month : expired) {
+            try {
+                archive(month);
+            } catch (RuntimeException e) {
+                // Later months stay in place so archives remain a contiguous prefix of history.
+                log.error("Archiving transaction partition {} failed", TransactionPartitionDao.partitionName(month), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copies the month to a gzipped file with its account index, records it and drops the partition,
+     * all in one transaction. Both files are synced before the drop commits, so a crash at any point
+     * leaves the rows somewhere.
+     */
+    private void archive(YearMonth month) {
+        String name = TransactionPartitionDao.partitionName(month);
+        Path target = archiveDir.resolve(name + ".csv.gz").toAbsolutePath();
+        Path index = AccountIndexedArchive.indexPath(target);
+        TransactionArchive archived = transactionTemplate.execute(status -> {
+            if (!partitionDao.tryLockArchival() || !partitionDao.listMonths().contains(month)) {
+                return null; // another node is archiving, or already did
+            }
+            TransactionArchive archive = new TransactionArchive();
+            archive.setPartitionName(name);
+            archive.setRangeStart(month.atDay(1));
+            archive.setRangeEnd(month.plusMonths(1).atDay(1));
+            archive.setPath(target.toString());
+            try {
+                Files.createDirectories(target.getParent());
+                Path temp = target.resolveSibling(name + ".csv.gz.tmp");
+                Path indexTemp = index.resolveSibling(index.getFileName() + ".tmp");
+                List<String> blocks;
+                try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                     BufferedOutputStream buffered = new BufferedOutputStream(file, 1 << 16)) {
+                    AccountIndexedArchive.Writer writer = new AccountIndexedArchive.Writer(buffered);
+                    partitionDao.copyOut(month, writer);
+                    blocks = writer.finish();
+                    archive.setRowCount(writer.transactions());
+                    file.getFD().sync();
+                }
+                try (FileOutputStream file = new FileOutputStream(indexTemp.toFile())) {
+                    file.write((String.join("\n", blocks) + "\n").getBytes(StandardCharsets.US_ASCII));
+                    file.getFD().sync();
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.move(indexTemp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                archive.setSizeBytes(Files.size(target));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write " + target, e);
+            }
+            archive.setArchivedAt(LocalDateTime.now());
+            archiveRepo.save(archive);
+            partitionDao.detachAndDrop(month);
+            return archive;
+        });
+        if (archived != null) {
+            log.info("Archived {} transactions from {} to {} ({} bytes)",
+                    archived.getRowCount(), name, archived.getPath(), archived.getSizeBytes());
+        }
+    }
+}
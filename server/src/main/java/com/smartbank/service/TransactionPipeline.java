@@ -0,0 +1,178 @@
+package com.smartbank.service;
+
+import com.smartbank.dto.TransactionResponseDTO;
+import com.smartbank.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * In-process partitions for asynchronously submitted transactions. Work is routed by source account
+ * number to one of a fixed number of partitions, each drained in order by a single writer thread, so
+ * transactions debiting the same account never race each other for its row lock. Queue capacity is
+ * counted by per-partition permits rather than by the queue itself, so callers can reserve a place
+ * before persisting the work they are about to queue.
+ */
+@Component
+@Slf4j
+public class TransactionPipeline {
+    private final ThreadPoolExecutor[] partitions;
+    private final Semaphore[] slots;
+    private final Timer[] lagTimers;
+    private final MeterRegistry meterRegistry;
+    private final long retryAfterSeconds;
+
+    // Callbacks waiting for a transaction to reach a final status, keyed by transaction id.
+    private final Map<Long, Set<Consumer<TransactionResponseDTO>>> waiters = new ConcurrentHashMap<>();
+
+    public TransactionPipeline(MeterRegistry meterRegistry,
+                               @Value("${transaction.async.partitions:8}") int partitionCount,
+                               @Value("${transaction.async.queue-capacity:1000}") int queueCapacity,
+                               @Value("${transaction.async.retry-after-seconds:1}") long retryAfterSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.partitions = new ThreadPoolExecutor[partitionCount];
+        this.slots = new Semaphore[partitionCount];
+        this.lagTimers = new Timer[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            String name = "transaction-writer-" + i;
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, name);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            partitions[i] = executor;
+            slots[i] = new Semaphore(queueCapacity);
+            String partition = String.valueOf(i);
+            Gauge.builder("smartbank.transaction.async.queue.depth", executor, e -> e.getQueue().size())
+                    .tag("partition", partition)
+                    .register(meterRegistry);
+            lagTimers[i] = Timer.builder("smartbank.transaction.async.lag")
+                    .description("Time a submitted transaction waits in its partition queue")
+                    .tag("partition", partition)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Queues {@code work} on the partition owning {@code partitionKey}. Throws
+     * {@link ServiceOverloadedException} when that partition's queue is full.
+     */
+    public void submit(String partitionKey, Runnable work) {
+        reserve(partitionKey).submit(work);
+    }
+
+    /**
+     * Reserves a place in the queue of the partition owning {@code partitionKey}, throwing
+     * {@link ServiceOverloadedException} when it is full. The caller must either submit work
+     * through the reservation or release it.
+     */
+    public Reservation reserve(String partitionKey) {
+        int index = Math.floorMod(partitionKey.hashCode(), partitions.length);
+        if (!slots[index].tryAcquire()) {
+            throw new ServiceOverloadedException("Transaction queue is full, please retry", retryAfterSeconds);
+        }
+        return new Reservation(index);
+    }
+
+    public final class Reservation {
+        private final int index;
+        private final AtomicBoolean held = new AtomicBoolean(true);
+
+        private Reservation(int index) {
+            this.index = index;
+        }
+
+        // Only rejected once the pipeline is shutting down.
+        public void submit(Runnable work) {
+            if (!held.get()) {
+                throw new IllegalStateException("Reservation was already used or released");
+            }
+            long enqueuedAt = System.nanoTime();
+            try {
+                partitions[index].execute(() -> {
+                    release();
+                    lagTimers[index].record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                    work.run();
+                });
+            } catch (RuntimeException e) {
+                release();
+                throw e;
+            }
+        }
+
+        public void release() {
+            if (held.compareAndSet(true, false)) {
+                slots[index].release();
+            }
+        }
+    }
+
+    public void recordCompletion(long submittedAtNanos, String status, String outcome) {
+        Timer.builder("smartbank.transaction.async.latency")
+                .description("Time from submission to final status of an asynchronous transaction")
+                .tag("status", status)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - submittedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Runs callback once the transaction reaches a final status on this node; returns a handle that cancels it.
+    public Runnable onFinalStatus(Long transactionId, Consumer<TransactionResponseDTO> callback) {
+        waiters.compute(transactionId, (id, callbacks) -> {
+            Set<Consumer<TransactionResponseDTO>> registered = callbacks != null ? callbacks : ConcurrentHashMap.newKeySet();
+            registered.add(callback);
+            return registered;
+        });
+        return () -> waiters.computeIfPresent(transactionId, (id, callbacks) -> {
+            callbacks.remove(callback);
+            return callbacks.isEmpty() ? null : callbacks;
+        });
+    }
+
+    // The final view is only loaded when someone on this node is waiting for it.
+    public void notifyFinalStatus(Long transactionId, Supplier<TransactionResponseDTO> finalView) {
+        Set<Consumer<TransactionResponseDTO>> callbacks = waiters.remove(transactionId);
+        if (callbacks == null) {
+            return;
+        }
+        TransactionResponseDTO view = finalView.get();
+        for (Consumer<TransactionResponseDTO> callback : callbacks) {
+            try {
+                callback.accept(view);
+            } catch (RuntimeException ex) {
+                log.warn("Completion callback for transaction {} failed", transactionId, ex);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.shutdown();
+        }
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -1,16 +1,36 @@
 package com.smartbank.service;
 
+import com.smartbank.dto.BatchTransactionRequestDTO;
+import com.smartbank.dto.BatchTransactionResponseDTO;
+import com.smartbank.dto.TransactionAuthorizationRequestDTO;
+import com.smartbank.dto.TransactionAuthorizationResponseDTO;
+import com.smartbank.dto.TransactionPageDTO;
 import com.smartbank.dto.TransactionRequestDTO;
 import com.smartbank.dto.TransactionResponseDTO;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import java.util.List;
+import java.util.Optional;
 
 public interface TransactionService {
+    TransactionAuthorizationResponseDTO authorize(TransactionAuthorizationRequestDTO dto);
+
     TransactionResponseDTO createTransaction(TransactionRequestDTO transactionDTO);
 
+    TransactionResponseDTO submitTransaction(TransactionRequestDTO transactionDTO);
+
+    DeferredResult<TransactionResponseDTO> awaitTransaction(Long id, long waitMs);
+
+    BatchTransactionResponseDTO createTransactions(BatchTransactionRequestDTO batch);
+
     TransactionResponseDTO getTransactionById(Long id);
 
-    List<TransactionResponseDTO> getAllTransactions();
+    // Not scoped to the current user; for pushing a transaction to users already known to own it.
+    Optional<TransactionResponseDTO> findTransactionView(Long id);
+
+    // Changes whenever the caller's history page could; cheap enough to check before loading a page.
+    String getHistoryETag();
+
+    TransactionPageDTO getAllTransactions(String cursor, Integer limit);
 
     void deleteTransaction(Long id);
 }
@@ -1,82 +1,333 @@
 package com.smartbank.service;
 
+import com.smartbank.dto.BatchItemResultDTO;
+import com.smartbank.dto.BatchTransactionRequestDTO;
+import com.smartbank.dto.BatchTransactionResponseDTO;
+import com.smartbank.dto.TransactionAuthorizationRequestDTO;
+import com.smartbank.dto.TransactionAuthorizationResponseDTO;
+import com.smartbank.dto.TransactionPageDTO;
 import com.smartbank.dto.TransactionRequestDTO;
 import com.smartbank.dto.TransactionResponseDTO;
 import com.smartbank.entity.Account;
 import com.smartbank.entity.Transaction;
-import com.smartbank.entity.User;
 import com.smartbank.entity.enums.TransactionStatus;
 import com.smartbank.entity.enums.TransactionType;
-import com.smartbank.exception.UserNotFoundException;
+import com.smartbank.event.AccountChangedEvent;
+import com.smartbank.event.TransactionStatusChangedEvent;
+import com.smartbank.exception.InsufficientBalanceException;
+import com.smartbank.exception.ServiceOverloadedException;
+import com.smartbank.mapper.TransactionMapper;
+import com.smartbank.repository.AccountPinView;
 import com.smartbank.repository.AccountRepo;
+import com.smartbank.repository.AccountRevisionView;
+import com.smartbank.repository.TransactionBatchWriter;
 import com.smartbank.repository.TransactionRepo;
-import com.smartbank.repository.UserRepo;
+import com.smartbank.security.CurrentUser;
+import com.smartbank.security.JwtUtil;
+import com.smartbank.service.TransactionMetrics.Phase;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.context.SecurityContextHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
+@Slf4j
 @RequiredArgsConstructor
 public class TransactionServiceImpl implements TransactionService{
      private final TransactionRepo transactionRepo;
      private final AccountRepo accountRepo;
      private final PasswordEncoder passwordEncoder;
-     private final UserRepo userRepo;
+     private final CurrentUser currentUser;
+     private final TransactionBatchWriter batchWriter;
+     private final AccountLockManager lockManager;
+     private final TransactionTemplate transactionTemplate;
+     private final JwtUtil jwtUtil;
+     private final TransactionMapper transactionMapper;
+     private final ApplicationEventPublisher eventPublisher;
+     private final BalanceStripeManager balanceStripes;
+     private final TransactionPipeline pipeline;
+     private final AccountSummaryRecorder summaryRecorder;
+     private final TransactionPartitionManager partitionManager;
+     private final TransactionMetrics metrics;
+
+     private static final Comparator<Transaction> NEWEST_FIRST = Comparator
+             .comparing(Transaction::getTransactionDate).thenComparingLong(Transaction::getId).reversed();
+
+     @Value("${transaction.page.default-size:20}")
+     private int defaultPageSize;
+
+     @Value("${transaction.page.max-size:100}")
+     private int maxPageSize;
+
+     @Value("${transaction.batch.max-size:1000}")
+     private int maxBatchSize;
+
+     @Value("${transaction.async.max-wait-ms:30000}")
+     private long maxWaitMs;
+
+     @Override
+     public TransactionAuthorizationResponseDTO authorize(TransactionAuthorizationRequestDTO dto) {
+          String pinHash = findPinHash(dto.getSourceAccountNumber());
+          if (!passwordEncoder.matches(dto.getPin(), pinHash)) {
+               throw new SecurityException("Invalid PIN");
+          }
+          String email = currentEmail();
+          Date expiresAt = jwtUtil.transactionAuthorizationExpiry();
+          String token = jwtUtil.generateTransactionAuthorization(email, dto.getSourceAccountNumber(), expiresAt);
+          return new TransactionAuthorizationResponseDTO(token, expiresAt.toInstant());
+     }
 
      @Override
-     @Transactional
      public TransactionResponseDTO createTransaction(TransactionRequestDTO dto) {
+          long start = System.nanoTime();
+          String type = typeTag(dto.getTransactionType());
+          try {
+               // BCrypt runs before any row lock is taken so the lock is held only for the balance update.
+               String pinHash = findPinHash(dto.getSourceAccountNumber());
+               metrics.time(Phase.PIN_VERIFY, () -> verifyCredentials(dto, pinHash, currentEmail(), new HashMap<>()));
+               TransactionResponseDTO result = lockManager.withRetry(() -> transactionTemplate.execute(status -> {
+                    metrics.timeCommit();
+                    return applyTransaction(dto);
+               }));
+               metrics.recordOutcome(type, TransactionMetrics.outcome(null), start);
+               return result;
+          } catch (RuntimeException ex) {
+               metrics.recordOutcome(type, TransactionMetrics.outcome(ex), start);
+               throw ex;
+          }
+     }
+
+     private static String typeTag(String transactionType) {
+          for (TransactionType type : TransactionType.values()) {
+               if (type.name().equalsIgnoreCase(transactionType)) {
+                    return type.name();
+               }
+          }
+          return "UNKNOWN";
+     }
+
+     @Override
+     public TransactionResponseDTO submitTransaction(TransactionRequestDTO dto) {
+          String pinHash = findPinHash(dto.getSourceAccountNumber());
+          verifyCredentials(dto, pinHash, currentEmail(), new HashMap<>());
+          long submittedAt = System.nanoTime();
+
+          // A queue slot is reserved first, so a full queue turns the request away before anything is
+          // written. The pending row is committed before it is queued, so its id can be polled right away.
+          TransactionPipeline.Reservation slot = pipeline.reserve(dto.getSourceAccountNumber());
+          Transaction pending;
+          try {
+               pending = transactionTemplate.execute(status -> {
+                    Transaction tx = newPending(dto);
+                    tx.setSourceAccount(accountRepo.findByAccountNumber(dto.getSourceAccountNumber())
+                            .orElseThrow(() -> new EntityNotFoundException("Source account not found")));
+                    if (tx.getTransactionType() == TransactionType.TRANSFER) {
+                         tx.setTargetAccount(accountRepo.findByAccountNumber(dto.getTargetAccountNumber())
+                                 .orElseThrow(() -> new EntityNotFoundException("Target account not found")));
+                    }
+                    Transaction saved = transactionRepo.save(tx);
+                    summaryRecorder.record(saved, null, TransactionStatus.PENDING);
+                    publishStatus(saved);
+                    return saved;
+               });
+          } catch (RuntimeException ex) {
+               slot.release();
+               throw ex;
+          }
+          slot.submit(() -> processPending(pending.getId(), submittedAt));
+          return transactionMapper.toResponseDTO(pending);
+     }
+
+     // Re-queues transactions accepted before a restart. Rows already finished elsewhere are skipped by processPending.
+     @EventListener(ApplicationReadyEvent.class)
+     public void resumePending() {
+          List<Transaction> pending = transactionRepo.findWithSourceByStatus(TransactionStatus.PENDING);
+          if (!pending.isEmpty()) {
+               log.info("Resuming {} pending transactions", pending.size());
+          }
+          for (Transaction tx : pending) {
+               long id = tx.getId();
+               try {
+                    pipeline.submit(tx.getSourceAccount().getAccountNumber(), () -> processPending(id, System.nanoTime()));
+               } catch (ServiceOverloadedException ex) {
+                    log.warn("Transaction queue full while resuming; transaction {} stays pending", id);
+               }
+          }
+     }
+
+     private void processPending(long id, long submittedAt) {
+          TransactionStatus finalStatus;
+          String outcome;
+          try {
+               lockManager.withRetry(() -> transactionTemplate.execute(status -> {
+                    metrics.timeCommit();
+                    return applyPending(id);
+               }));
+               finalStatus = TransactionStatus.COMPLETED;
+               outcome = TransactionMetrics.outcome(null);
+          } catch (RuntimeException ex) {
+               log.debug("Transaction {} failed: {}", id, ex.getMessage());
+               markFailed(id);
+               finalStatus = TransactionStatus.FAILED;
+               outcome = TransactionMetrics.outcome(ex);
+          }
+          pipeline.recordCompletion(submittedAt, finalStatus.name(), outcome);
+          // Waiters were only registered after their ownership check, so the view is loaded unscoped.
+          pipeline.notifyFinalStatus(id, () -> findTransactionView(id).orElse(null));
+     }
+
+     private TransactionResponseDTO applyPending(long id) {
+          Transaction tx = transactionRepo.lockById(id)
+                  .orElseThrow(() -> new EntityNotFoundException("Transaction not found"));
+          if (tx.getTransactionStatus() != TransactionStatus.PENDING) {
+               return transactionMapper.toResponseDTO(tx);
+          }
+          String targetNumber = tx.getTargetAccount() != null ? tx.getTargetAccount().getAccountNumber() : null;
+          return apply(tx, tx.getSourceAccount().getAccountNumber(), targetNumber);
+     }
+
+     private void markFailed(long id) {
+          transactionTemplate.executeWithoutResult(status -> {
+               if (transactionRepo.updateStatus(id, TransactionStatus.PENDING, TransactionStatus.FAILED) == 1) {
+                    transactionRepo.findById(id).ifPresent(tx -> {
+                         summaryRecorder.record(tx, TransactionStatus.PENDING, TransactionStatus.FAILED);
+                         bumpRevisions(tx);
+                         publishStatus(tx);
+                    });
+               }
+          });
+     }
+
+     @Override
+     public DeferredResult<TransactionResponseDTO> awaitTransaction(Long id, long waitMs) {
+          if (waitMs < 1) {
+               throw new IllegalArgumentException("waitMs must be positive");
+          }
+          // Resolved up front: the timeout callback runs without the caller's security context.
+          Long accountId = currentAccountId();
+          DeferredResult<TransactionResponseDTO> result = new DeferredResult<>(Math.min(waitMs, maxWaitMs));
+          TransactionResponseDTO current = findOwned(id, accountId);
+          if (!TransactionStatus.PENDING.name().equals(current.getTransactionStatus())) {
+               result.setResult(current);
+               return result;
+          }
+          result.onCompletion(pipeline.onFinalStatus(id, result::setResult));
+          result.onTimeout(() -> result.setResult(findOwned(id, accountId)));
+
+          // Checked again after registering so a status change between the two cannot be missed.
+          current = findOwned(id, accountId);
+          if (!TransactionStatus.PENDING.name().equals(current.getTransactionStatus())) {
+               result.setResult(current);
+          }
+          return result;
+     }
+
+     private void verifyCredentials(TransactionRequestDTO dto, String pinHash, String email,
+                                    Map<String, Boolean> verifiedPins) {
+          String token = dto.getAuthorizationToken();
+          if (token != null && !token.isBlank()) {
+               if (!jwtUtil.isTransactionAuthorized(token, email, dto.getSourceAccountNumber())) {
+                    throw new SecurityException("Invalid or expired transaction authorization");
+               }
+               return;
+          }
+          boolean pinMatches = verifiedPins.computeIfAbsent(dto.getSourceAccountNumber() + ":" + dto.getPin(),
+                  key -> passwordEncoder.matches(dto.getPin(), pinHash));
+          if (!pinMatches) {
+               throw new SecurityException("Invalid PIN");
+          }
+     }
+
+     private String findPinHash(String accountNumber) {
+          return accountRepo.findPinsByAccountNumberIn(List.of(accountNumber)).stream()
+                  .findFirst()
+                  .map(AccountPinView::getPin)
+                  .orElseThrow(() -> new EntityNotFoundException("Source account not found"));
+     }
+
+     private String currentEmail() {
+          return currentUser.email();
+     }
+
+     private TransactionResponseDTO applyTransaction(TransactionRequestDTO dto) {
+          return apply(newPending(dto), dto.getSourceAccountNumber(), dto.getTargetAccountNumber());
+     }
+
+     private Transaction newPending(TransactionRequestDTO dto) {
           Transaction tx = new Transaction();
           tx.setTransactionType(TransactionType.valueOf(dto.getTransactionType().toUpperCase()));
           tx.setTransactionStatus(TransactionStatus.PENDING);
           tx.setAmount(dto.getAmount());
           tx.setTransactionDate(LocalDateTime.now());
+          return tx;
+     }
+
+     private TransactionResponseDTO apply(Transaction tx, String sourceNumber, String targetNumber) {
+          // Rows queued by the async path are already persisted and counted as pending.
+          TransactionStatus previousStatus = tx.getId() != 0 ? TransactionStatus.PENDING : null;
+          boolean transfer = tx.getTransactionType() == TransactionType.TRANSFER;
+          String creditedNumber = switch (tx.getTransactionType()) {
+               case DEPOSIT -> sourceNumber;
+               case TRANSFER -> targetNumber;
+               case WITHDRAWAL -> null;
+          };
+          // Credits to a striped account go to a stripe, so its row is not locked for them.
+          boolean stripedCredit = balanceStripes.isStriped(creditedNumber)
+                  && !(transfer && creditedNumber.equals(sourceNumber));
+          List<String> accountNumbers = new ArrayList<>(2);
+          if (!(stripedCredit && tx.getTransactionType() == TransactionType.DEPOSIT)) {
+               accountNumbers.add(sourceNumber);
+          }
+          if (transfer && targetNumber != null && !stripedCredit) {
+               accountNumbers.add(targetNumber);
+          }
+          Map<String, Account> locked = metrics.time(Phase.LOCK, () -> lockManager.lockInOrder(accountNumbers));
 
-          Account source = accountRepo.lockByAccountNumber(dto.getSourceAccountNumber())
+          Account source = lockedOrLoaded(locked, sourceNumber)
                   .orElseThrow(() -> new EntityNotFoundException("Source account not found"));
           tx.setSourceAccount(source);
-          if (!passwordEncoder.matches(dto.getPin(), source.getPin())) {
-               throw new SecurityException("Invalid PIN");
-          }
 
-          Account target = null;
-          if ("TRANSFER".equalsIgnoreCase(dto.getTransactionType())) {
-               target = accountRepo.lockByAccountNumber(dto.getTargetAccountNumber())
-                       .orElseThrow(() -> new EntityNotFoundException("Target account not found"));
-               tx.setTargetAccount(target);
+          Account target = transfer
+                  ? lockedOrLoaded(locked, targetNumber)
+                          .orElseThrow(() -> new EntityNotFoundException("Target account not found"))
+                  : null;
+          tx.setTargetAccount(target);
+          if (tx.getTransactionType() != TransactionType.DEPOSIT && source.isStriped()) {
+               balanceStripes.fold(source);
           }
 
-          Transaction savedPending = transactionRepo.save(tx);
+          Transaction savedPending = metrics.time(Phase.PENDING_INSERT, () -> transactionRepo.save(tx));
 
           try {
-               switch (tx.getTransactionType()) {
-                    case TRANSFER -> {
-                         if (source.getBalance().compareTo(dto.getAmount()) < 0)
-                              throw new IllegalArgumentException("Insufficient balance");
-                         source.setBalance(source.getBalance().subtract(dto.getAmount()));
-                         target.setBalance(target.getBalance().add(dto.getAmount()));
-                    }
-                    case WITHDRAWAL -> {
-                         if (source.getBalance().compareTo(dto.getAmount()) < 0)
-                              throw new IllegalArgumentException("Insufficient balance");
-                         source.setBalance(source.getBalance().subtract(dto.getAmount()));
-                    }
-                    case DEPOSIT -> source.setBalance(source.getBalance().add(dto.getAmount()));
-               }
-
-               accountRepo.save(source);
-               if (target != null) accountRepo.save(target);
-
+               metrics.time(Phase.BALANCE_UPDATE, () -> updateBalances(tx, source, target, locked));
                savedPending.setTransactionStatus(TransactionStatus.COMPLETED);
                Transaction completed = transactionRepo.save(savedPending);
-               return mapToDTO(completed);
+               summaryRecorder.record(completed, previousStatus, TransactionStatus.COMPLETED);
+               publishStatus(completed);
+               return transactionMapper.toResponseDTO(completed);
 
           } catch (Exception ex) {
                savedPending.setTransactionStatus(TransactionStatus.FAILED);
@@ -85,40 +336,313 @@ public class TransactionServiceImpl implements TransactionService{
           }
      }
 
+     private void updateBalances(Transaction tx, Account source, Account target, Map<String, Account> locked) {
+          switch (tx.getTransactionType()) {
+               case TRANSFER -> {
+                    source.setBalance(debit(source.getBalance(), tx.getAmount()));
+                    credit(target, tx.getAmount(), locked);
+               }
+               case WITHDRAWAL -> source.setBalance(debit(source.getBalance(), tx.getAmount()));
+               case DEPOSIT -> credit(source, tx.getAmount(), locked);
+          }
+          // Accounts credited without their row lock had their revision bumped by the stripe or row update.
+          locked.values().forEach(Account::bumpRevision);
+
+          accountRepo.save(source);
+          publishChanged(source);
+          if (target != null) {
+               accountRepo.save(target);
+               publishChanged(target);
+          }
+          // Flushed here so the UPDATEs count towards this phase rather than the commit.
+          accountRepo.flush();
+     }
+
+     private Optional<Account> lockedOrLoaded(Map<String, Account> locked, String accountNumber) {
+          if (accountNumber == null) {
+               return Optional.empty();
+          }
+          Account account = locked.get(accountNumber);
+          return account != null ? Optional.of(account) : accountRepo.findByAccountNumber(accountNumber);
+     }
+
+     private void credit(Account account, BigDecimal amount, Map<String, Account> locked) {
+          if (locked.containsKey(account.getAccountNumber())) {
+               account.setBalance(account.getBalance().add(amount));
+          } else if (!balanceStripes.credit(account, amount)) {
+               // Striping was switched off after we looked; add to the row atomically instead.
+               accountRepo.addToBalance(account.getId(), amount);
+          }
+     }
+
+     @Override
+     public BatchTransactionResponseDTO createTransactions(BatchTransactionRequestDTO batch) {
+          List<TransactionRequestDTO> items = batch.getTransactions();
+          if (items.size() > maxBatchSize) {
+               throw new IllegalArgumentException("Batch size exceeds limit of " + maxBatchSize);
+          }
+
+          // Credentials are checked up front, outside the lock window, once per distinct account/PIN pair.
+          Set<String> sourceNumbers = new HashSet<>();
+          items.forEach(dto -> sourceNumbers.add(dto.getSourceAccountNumber()));
+          Map<String, String> pinHashes = new HashMap<>();
+          accountRepo.findPinsByAccountNumberIn(sourceNumbers)
+                  .forEach(view -> pinHashes.put(view.getAccountNumber(), view.getPin()));
+          String email = currentEmail();
+          Map<String, Boolean> verifiedPins = new HashMap<>();
+          Map<Integer, String> rejected = new HashMap<>();
+          for (int i = 0; i < items.size(); i++) {
+               TransactionRequestDTO dto = items.get(i);
+               String pinHash = pinHashes.get(dto.getSourceAccountNumber());
+               if (pinHash == null) {
+                    continue; // reported as a missing source account once locked
+               }
+               try {
+                    verifyCredentials(dto, pinHash, email, verifiedPins);
+               } catch (SecurityException ex) {
+                    rejected.put(i, ex.getMessage());
+               }
+          }
+
+          return lockManager.withRetry(() -> transactionTemplate.execute(status -> applyBatch(batch, rejected)));
+     }
+
+     private BatchTransactionResponseDTO applyBatch(BatchTransactionRequestDTO batch, Map<Integer, String> rejected) {
+          List<TransactionRequestDTO> items = batch.getTransactions();
+          boolean bestEffort = "BEST_EFFORT".equals(batch.getMode());
+
+          Set<String> accountNumbers = new TreeSet<>();
+          for (TransactionRequestDTO dto : items) {
+               accountNumbers.add(dto.getSourceAccountNumber());
+               if ("TRANSFER".equalsIgnoreCase(dto.getTransactionType()) && dto.getTargetAccountNumber() != null) {
+                    accountNumbers.add(dto.getTargetAccountNumber());
+               }
+          }
+          Map<String, Account> accounts = new HashMap<>();
+          for (Account account : lockManager.lockAllInOrder(accountNumbers)) {
+               accounts.put(account.getAccountNumber(), account);
+               if (account.isStriped()) {
+                    balanceStripes.fold(account);
+               }
+          }
+
+          // Items are applied against running balances so later items see the effect of earlier ones;
+          // the locked entities are only touched once we know the batch will commit.
+          Map<String, BigDecimal> balances = new HashMap<>();
+          List<BatchItemResultDTO> results = new ArrayList<>(items.size());
+          List<Transaction> completed = new ArrayList<>();
+          List<BatchItemResultDTO> completedResults = new ArrayList<>();
+          for (int i = 0; i < items.size(); i++) {
+               TransactionRequestDTO dto = items.get(i);
+               if (rejected.containsKey(i)) {
+                    results.add(new BatchItemResultDTO(i, TransactionStatus.FAILED.name(), null, rejected.get(i)));
+                    continue;
+               }
+               try {
+                    Transaction tx = applyBatchItem(dto, accounts, balances);
+                    BatchItemResultDTO result = new BatchItemResultDTO(i, TransactionStatus.COMPLETED.name(), null, null);
+                    completed.add(tx);
+                    completedResults.add(result);
+                    results.add(result);
+               } catch (IllegalArgumentException | SecurityException | EntityNotFoundException ex) {
+                    results.add(new BatchItemResultDTO(i, TransactionStatus.FAILED.name(), null, ex.getMessage()));
+               }
+          }
+
+          BatchTransactionResponseDTO response = new BatchTransactionResponseDTO();
+          response.setResults(results);
+          response.setFailed(items.size() - completed.size());
+          if (!bestEffort && !completed.isEmpty() && completed.size() < items.size()) {
+               completedResults.forEach(result -> result.setStatus("ROLLED_BACK"));
+               response.setCommitted(false);
+               return response;
+          }
+
+          balances.forEach((accountNumber, balance) -> {
+               Account account = accounts.get(accountNumber);
+               account.setBalance(balance);
+               account.bumpRevision();
+               publishChanged(account);
+          });
+          batchWriter.insertAll(completed);
+          summaryRecorder.record(completed, null, TransactionStatus.COMPLETED);
+          completed.forEach(this::publishStatus);
+          for (int i = 0; i < completed.size(); i++) {
+               completedResults.get(i).setTransaction(transactionMapper.toResponseDTO(completed.get(i)));
+          }
+          response.setCommitted(!completed.isEmpty());
+          response.setCompleted(completed.size());
+          return response;
+     }
+
+     private Transaction applyBatchItem(TransactionRequestDTO dto, Map<String, Account> accounts,
+                                        Map<String, BigDecimal> balances) {
+          TransactionType type = TransactionType.valueOf(dto.getTransactionType().toUpperCase());
+          if (dto.getAmount().signum() <= 0) {
+               throw new IllegalArgumentException("Amount must be positive");
+          }
+          Account source = accounts.get(dto.getSourceAccountNumber());
+          if (source == null) {
+               throw new EntityNotFoundException("Source account not found");
+          }
+          Account target = null;
+          if (type == TransactionType.TRANSFER) {
+               target = accounts.get(dto.getTargetAccountNumber());
+               if (target == null) {
+                    throw new EntityNotFoundException("Target account not found");
+               }
+          }
+
+          BigDecimal sourceBalance = balances.getOrDefault(source.getAccountNumber(), source.getBalance());
+          switch (type) {
+               case TRANSFER -> {
+                    balances.put(source.getAccountNumber(), debit(sourceBalance, dto.getAmount()));
+                    BigDecimal targetBalance = balances.getOrDefault(target.getAccountNumber(), target.getBalance());
+                    balances.put(target.getAccountNumber(), targetBalance.add(dto.getAmount()));
+               }
+               case WITHDRAWAL -> balances.put(source.getAccountNumber(), debit(sourceBalance, dto.getAmount()));
+               case DEPOSIT -> balances.put(source.getAccountNumber(), sourceBalance.add(dto.getAmount()));
+          }
+
+          Transaction tx = new Transaction();
+          tx.setTransactionType(type);
+          tx.setTransactionStatus(TransactionStatus.COMPLETED);
+          tx.setAmount(dto.getAmount());
+          tx.setTransactionDate(LocalDateTime.now());
+          tx.setSourceAccount(source);
+          tx.setTargetAccount(target);
+          return tx;
+     }
+
+     private void publishChanged(Account account) {
+          eventPublisher.publishEvent(new AccountChangedEvent(account.getId(), account.getUser().getId()));
+     }
+
+     private void publishStatus(Transaction tx) {
+          Long targetUserId = tx.getTargetAccount() != null ? tx.getTargetAccount().getUser().getId() : null;
+          eventPublisher.publishEvent(new TransactionStatusChangedEvent(transactionMapper.toResponseDTO(tx),
+                  tx.getSourceAccount().getUser().getId(), targetUserId));
+     }
+
+     static BigDecimal debit(BigDecimal balance, BigDecimal amount) {
+          if (balance.compareTo(amount) < 0) {
+               throw new InsufficientBalanceException();
+          }
+          return balance.subtract(amount);
+     }
 
      @Override
+     @Transactional(readOnly = true)
      public TransactionResponseDTO getTransactionById(Long id) {
-          Transaction transaction = transactionRepo.findById(id)
+          return findOwned(id, currentAccountId());
+     }
+
+     @Override
+     @Transactional(readOnly = true)
+     public Optional<TransactionResponseDTO> findTransactionView(Long id) {
+          return transactionRepo.findById(id).map(transactionMapper::toResponseDTO);
+     }
+
+     private Long currentAccountId() {
+          return currentUser.accountId().orElseThrow(() -> new EntityNotFoundException("Transaction not found"));
+     }
+
+     // Transactions of other customers are reported as missing rather than forbidden, so ids cannot be probed.
+     private TransactionResponseDTO findOwned(Long id, Long accountId) {
+          Transaction transaction = transactionRepo.findByIdForAccount(id, accountId)
                   .orElseThrow(() -> new EntityNotFoundException("Transaction not found"));
-          return mapToDTO(transaction);
+          return transactionMapper.toResponseDTO(transaction);
+     }
+
+     @Override
+     @Transactional(readOnly = true)
+     public String getHistoryETag() {
+          Long accountId = currentUser.accountId().orElse(null);
+          if (accountId == null) {
+               return "h0";
+          }
+          // New rows move the newest ids, balance and status changes the revision, archival the hot window.
+          LocalDateTime hotFrom = partitionManager.hotFrom();
+          long revision = accountRepo.findRevisionById(accountId).map(AccountRevisionView::getRevision).orElse(0L);
+          List<Long> newestOut = transactionRepo.findNewestOutgoingIds(accountId, hotFrom, Limit.of(1));
+          List<Long> newestIn = transactionRepo.findNewestIncomingIds(accountId, hotFrom, Limit.of(1));
+          return "h" + accountId + "-" + revision
+                  + "-" + (newestOut.isEmpty() ? 0 : newestOut.get(0))
+                  + "-" + (newestIn.isEmpty() ? 0 : newestIn.get(0))
+                  + "-" + YearMonth.from(hotFrom);
      }
 
      @Override
-     public List<TransactionResponseDTO> getAllTransactions() {
-          String email = SecurityContextHolder.getContext().getAuthentication().getName();
-          User user = userRepo.findByEmail(email)
-                  .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
-          Long userId = user.getId();
+     @Transactional(readOnly = true)
+     public TransactionPageDTO getAllTransactions(String cursor, Integer limit) {
+          int pageSize = resolvePageSize(limit);
+          TransactionCursor position = TransactionCursor.decode(cursor);
+          Long accountId = currentUser.accountId().orElse(null);
+          if (accountId == null) {
+               return new TransactionPageDTO(List.of(), null, false);
+          }
+
+          // Fetch one extra row per direction so we know whether another page exists.
+          // Older history lives in cold partitions and archives; see TransactionArchiveService.
+          Limit fetch = Limit.of(pageSize + 1);
+          LocalDateTime hotFrom = partitionManager.hotFrom();
+          List<Transaction> outgoing = transactionRepo.findOutgoingBefore(
+                  accountId, position.transactionDate(), position.id(), hotFrom, fetch);
+          List<Transaction> incoming = transactionRepo.findIncomingBefore(
+                  accountId, position.transactionDate(), position.id(), hotFrom, fetch);
 
-          List<Transaction> transactions = transactionRepo
-                  .findBySourceAccount_User_IdOrTargetAccount_User_Id(userId, userId);
+          List<Transaction> merged = mergeNewestFirst(outgoing, incoming, pageSize + 1);
+          boolean hasMore = merged.size() > pageSize;
+          List<Transaction> page = hasMore ? merged.subList(0, pageSize) : merged;
+          String nextCursor = hasMore ? TransactionCursor.after(page.get(page.size() - 1)).encode() : null;
 
-          return transactions.stream()
-                  .map(this::mapToDTO)
-                  .collect(Collectors.toList());
+          return new TransactionPageDTO(page.stream().map(transactionMapper::toResponseDTO).toList(), nextCursor, hasMore);
+     }
+
+     private int resolvePageSize(Integer limit) {
+          if (limit == null) {
+               return defaultPageSize;
+          }
+          if (limit < 1) {
+               throw new IllegalArgumentException("limit must be positive");
+          }
+          return Math.min(limit, maxPageSize);
+     }
+
+     private List<Transaction> mergeNewestFirst(List<Transaction> a, List<Transaction> b, int max) {
+          List<Transaction> merged = new ArrayList<>(Math.min(max, a.size() + b.size()));
+          int i = 0, j = 0;
+          while (merged.size() < max && (i < a.size() || j < b.size())) {
+               Transaction next;
+               if (j >= b.size() || (i < a.size() && NEWEST_FIRST.compare(a.get(i), b.get(j)) <= 0)) {
+                    next = a.get(i++);
+               } else {
+                    next = b.get(j++);
+               }
+               // A transfer between the same account shows up in both directions; keep it once.
+               if (merged.isEmpty() || merged.get(merged.size() - 1).getId() != next.getId()) {
+                    merged.add(next);
+               }
+          }
+          return merged;
      }
 
      @Override
      public void deleteTransaction(Long id) {
-          transactionRepo.deleteById(id);
-     }
-     private TransactionResponseDTO mapToDTO(Transaction transaction) {
-          TransactionResponseDTO dto = new TransactionResponseDTO();
-          dto.setId(transaction.getId());
-          dto.setTransactionType(String.valueOf(transaction.getTransactionType()));
-          dto.setTransactionStatus(String.valueOf(transaction.getTransactionStatus()));
-          dto.setAmount(transaction.getAmount());
-          dto.setTransactionDate(transaction.getTransactionDate());
-          return dto;
+          transactionTemplate.executeWithoutResult(status -> transactionRepo.findById(id).ifPresent(tx -> {
+               summaryRecorder.record(tx, tx.getTransactionStatus(), null);
+               transactionRepo.delete(tx);
+               bumpRevisions(tx);
+          }));
+     }
+
+     // Status changes and deletes leave the newest ids alone, so they move the history ETag through the revision.
+     private void bumpRevisions(Transaction tx) {
+          List<Long> ids = new ArrayList<>(2);
+          ids.add(tx.getSourceAccount().getId());
+          if (tx.getTargetAccount() != null) {
+               ids.add(tx.getTargetAccount().getId());
+          }
+          accountRepo.bumpRevisions(ids);
      }
 }
@@ -6,13 +6,14 @@ import com.smartbank.dto.UserRequestDTO;
 import com.smartbank.dto.UserResponseDTO;
 import com.smartbank.entity.User;
 import com.smartbank.exception.UserNotFoundException;
+import com.smartbank.mapper.UserMapper;
 import com.smartbank.repository.UserRepo;
 import com.smartbank.security.JwtUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -22,7 +23,7 @@ import java.util.List;
 public class UserServiceImpl implements UserService{
     private final UserRepo userRepo;
     private final PasswordEncoder passwordEncoder;
-    private final ModelMapper modelMapper;
+    private final UserMapper userMapper;
     private final JwtUtil jwtUtil;
 
     @Override
@@ -31,11 +32,11 @@ public class UserServiceImpl implements UserService{
             throw new IllegalArgumentException("Email already exists");
         }
 
-        User user = modelMapper.map(userRequestDTO, User.class);
+        User user = userMapper.toEntity(userRequestDTO);
         user.setPassword(passwordEncoder.encode(userRequestDTO.getPassword()));
 
         User savedUser = userRepo.save(user);
-        return modelMapper.map(savedUser, UserResponseDTO.class);
+        return userMapper.toResponseDTO(savedUser);
     }
 
     @Override
@@ -45,7 +46,8 @@ public class UserServiceImpl implements UserService{
         if (!passwordEncoder.matches(loginRequestDTO.getPassword(), user.getPassword())) {
             throw new RuntimeException("Invalid password"); // You can create a custom exception instead
         }
-        String token = jwtUtil.generateToken(loginRequestDTO.getEmail());
+        Long accountId = user.getAccount() != null ? user.getAccount().getId() : null;
+        String token = jwtUtil.generateToken(user.getEmail(), user.getId(), accountId);
 
         LoginResponseDTO response = new LoginResponseDTO();
         response.setToken(token);
@@ -57,15 +59,17 @@ public class UserServiceImpl implements UserService{
     }
 
     @Override
+    @Transactional(readOnly = true)
     public UserResponseDTO getUserById(Long id) {
         User user =  userRepo.findById(id)
                 .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
-        return modelMapper.map(user, UserResponseDTO.class);
+        return userMapper.toResponseDTO(user);
     }
     @Override
+    @Transactional(readOnly = true)
     public List<UserResponseDTO> getAllUsers() {
         return userRepo.findAll().stream()
-                .map(user -> modelMapper.map(user, UserResponseDTO.class))
+                .map(userMapper::toResponseDTO)
                 .toList();
     }
 
@@ -0,0 +1,417 @@
+package com.smartbank.stream;
+
+import com.smartbank.cache.CacheInvalidationChannel;
+import com.smartbank.cache.CacheInvalidationChannel.TransactionNotice;
+import com.smartbank.dto.AccountResponseDTO;
+import com.smartbank.dto.TransactionResponseDTO;
+import com.smartbank.event.AccountChangedEvent;
+import com.smartbank.event.TransactionStatusChangedEvent;
+import com.smartbank.exception.ServiceOverloadedException;
+import com.smartbank.service.AccountService;
+import com.smartbank.service.TransactionService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fans committed account and transaction events out to the server-sent event streams open on this
+ * node. Idle streams cost no thread: events are queued per subscriber, and a stream with events
+ * waiting is drained on a thread of its own (a virtual one when virtual threads are enabled), so a
+ * client that stops reading only ever blocks its own writer. Such a client is disconnected once a
+ * write has been stuck for the write timeout or its queue fills up. Recent events stay in a ring buffer so a client reconnecting with Last-Event-ID gets
+ * what it missed, or a {@code resync} event when it fell too far behind.
+ */
+@Component
+@Slf4j
+public class EventStreamHub {
+    private static final String BALANCE = "balance";
+    private static final String TRANSACTION = "transaction";
+    private static final String RESYNC = "resync";
+
+    private final AccountService accountService;
+    private final TransactionService transactionService;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheInvalidationChannel invalidationChannel;
+    private final MeterRegistry meterRegistry;
+    private final int maxConnections;
+    private final int maxConnectionsPerUser;
+    private final int queueCapacity;
+    private final long timeoutMs;
+    private final long writeTimeoutNanos;
+    private final long retryAfterSeconds;
+
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    // Users whose balance refresh is queued; further changes before it runs are folded into it.
+    private final Set<Long> pendingBalances = ConcurrentHashMap.newKeySet();
+    // Grows with the number of streams being written to; a stalled write never holds up another stream.
+    private final ExecutorService dispatcher;
+
+    // Event ids are "<epoch>-<seq>"; ids from an earlier run of this node are not resumable.
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    // Guards nextSeq, the ring and delivery, so a replay and the live events after it never overlap.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final RecentEvent[] ring;
+    private long nextSeq = 1;
+
+    public EventStreamHub(AccountService accountService,
+                          TransactionService transactionService,
+                          TransactionTemplate transactionTemplate,
+                          CacheInvalidationChannel invalidationChannel,
+                          MeterRegistry meterRegistry,
+                          @Value("${stream.max-connections:4000}") int maxConnections,
+                          @Value("${stream.max-connections-per-user:5}") int maxConnectionsPerUser,
+                          @Value("${stream.queue-capacity:64}") int queueCapacity,
+                          @Value("${stream.replay-buffer-size:4096}") int replayBufferSize,
+                          @Value("${stream.timeout-ms:1800000}") long timeoutMs,
+                          @Value("${stream.write-timeout-ms:5000}") long writeTimeoutMs,
+                          @Value("${stream.retry-after-seconds:5}") long retryAfterSeconds,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.accountService = accountService;
+        this.transactionService = transactionService;
+        this.transactionTemplate = transactionTemplate;
+        this.invalidationChannel = invalidationChannel;
+        this.meterRegistry = meterRegistry;
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMs = timeoutMs;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.ring = new RecentEvent[replayBufferSize];
+        this.dispatcher = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), dispatchThreads(virtualThreads));
+        Gauge.builder("smartbank.stream.connections", connections, AtomicInteger::get)
+                .register(meterRegistry);
+        // Balance and transaction changes committed on other nodes arrive through the invalidation channel.
+        invalidationChannel.subscribe(this::refreshBalance);
+        invalidationChannel.subscribeTransactions(this::onRemoteTransaction);
+    }
+
+    /**
+     * Opens a stream for {@code userId}. With a {@code lastEventId} from this node's current run the
+     * events the client missed are replayed first; every stream then starts with the current balance.
+     */
+    public SseEmitter subscribe(Long userId, String lastEventId) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            throw new ServiceOverloadedException("Too many open event streams, please retry", retryAfterSeconds);
+        }
+        SseEmitter emitter = newEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(userId, emitter, new ArrayBlockingQueue<>(queueCapacity));
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> remove(subscriber));
+
+        lock.lock();
+        try {
+            List<Subscriber> own = subscribers.compute(userId, (id, existing) -> {
+                List<Subscriber> list = existing != null ? existing : new CopyOnWriteArrayList<>();
+                list.add(subscriber);
+                return list;
+            });
+            if (own.size() > maxConnectionsPerUser) {
+                drop(own.get(0), "replaced");
+            }
+            replay(subscriber, lastEventId);
+        } finally {
+            lock.unlock();
+        }
+        refreshBalance(userId);
+        return emitter;
+    }
+
+    SseEmitter newEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private static ThreadFactory dispatchThreads(boolean virtualThreads) {
+        if (virtualThreads && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            return new VirtualThreadTaskExecutor("event-stream-").getVirtualThreadFactory();
+        }
+        AtomicInteger threads = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "event-stream-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Runs after commit, so a rolled back change is never pushed.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChanged(AccountChangedEvent event) {
+        if (event.userId() != null) {
+            refreshBalance(event.userId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTransactionStatusChanged(TransactionStatusChangedEvent event) {
+        publishTransaction(event.sourceUserId(), event.targetUserId(), event.transaction());
+        try {
+            invalidationChannel.publishTransaction(new TransactionNotice(event.transaction().getId(),
+                    event.sourceUserId(), event.targetUserId()));
+        } catch (RuntimeException ex) {
+            log.warn("Could not forward transaction {} to other nodes: {}", event.transaction().getId(), ex.getMessage());
+        }
+    }
+
+    // Reloaded from the primary, so a notice can carry a later status than the one that sent it.
+    private void onRemoteTransaction(TransactionNotice notice) {
+        if (!subscribers.containsKey(notice.sourceUserId())
+                && (notice.targetUserId() == null || !subscribers.containsKey(notice.targetUserId()))) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> {
+                try {
+                    TransactionResponseDTO transaction = transactionTemplate.execute(status ->
+                            transactionService.findTransactionView(notice.transactionId()).orElse(null));
+                    if (transaction != null) {
+                        publishTransaction(notice.sourceUserId(), notice.targetUserId(), transaction);
+                    }
+                } catch (RuntimeException ex) {
+                    log.warn("Could not load transaction {} for its event streams: {}", notice.transactionId(), ex.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            log.debug("Event streams are shutting down; transaction {} not pushed", notice.transactionId());
+        }
+    }
+
+    private void publishTransaction(Long sourceUserId, Long targetUserId, TransactionResponseDTO transaction) {
+        if (sourceUserId != null) {
+            publish(sourceUserId, TRANSACTION, transaction);
+        }
+        if (targetUserId != null && !targetUserId.equals(sourceUserId)) {
+            publish(targetUserId, TRANSACTION, transaction);
+        }
+    }
+
+    // Keeps idle connections open through proxies and finds streams whose client went away.
+    @Scheduled(fixedDelayString = "${stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (List<Subscriber> own : subscribers.values()) {
+            for (Subscriber subscriber : own) {
+                enqueue(subscriber, SseEmitter.event().comment("heartbeat"));
+            }
+        }
+    }
+
+    // A blocked write only ends when the socket times out, so the client is cut loose here instead.
+    @Scheduled(fixedDelayString = "${stream.write-timeout-ms:5000}")
+    public void disconnectStalled() {
+        long now = System.nanoTime();
+        for (List<Subscriber> own : subscribers.values()) {
+            for (Subscriber subscriber : own) {
+                if (subscriber.writing && now - subscriber.writeStartedAt > writeTimeoutNanos) {
+                    drop(subscriber, "stalled");
+                }
+            }
+        }
+    }
+
+    // The account view is only loaded when someone on this node is listening.
+    private void refreshBalance(Long userId) {
+        if (!subscribers.containsKey(userId) || !pendingBalances.add(userId)) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> {
+                pendingBalances.remove(userId);
+                if (!subscribers.containsKey(userId)) {
+                    return;
+                }
+                try {
+                    // A read-write transaction reads the primary, which already has the change.
+                    AccountResponseDTO account = transactionTemplate.execute(status ->
+                            accountService.findAccountView(userId).orElse(null));
+                    if (account != null) {
+                        publish(userId, BALANCE, account);
+                    }
+                } catch (RuntimeException ex) {
+                    log.warn("Could not load the account of user {} for its event stream: {}", userId, ex.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            pendingBalances.remove(userId);
+        }
+    }
+
+    private void publish(Long userId, String name, Object data) {
+        lock.lock();
+        try {
+            long seq = nextSeq++;
+            ring[(int) (seq % ring.length)] = new RecentEvent(seq, userId, name, data);
+            List<Subscriber> own = subscribers.get(userId);
+            if (own != null) {
+                for (Subscriber subscriber : own) {
+                    enqueue(subscriber, event(seq, name, data));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with the lock held, right after the subscriber was registered.
+    private void replay(Subscriber subscriber, String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return;
+        }
+        long oldest = Math.max(1, nextSeq - ring.length);
+        long last = parseSeq(lastEventId);
+        if (last < 0 || last + 1 < oldest || last >= nextSeq) {
+            enqueue(subscriber, SseEmitter.event().name(RESYNC)
+                    .data(Map.of("reason", "replay-unavailable"), MediaType.APPLICATION_JSON));
+            return;
+        }
+        for (long seq = last + 1; seq < nextSeq; seq++) {
+            RecentEvent recent = ring[(int) (seq % ring.length)];
+            if (recent != null && recent.seq() == seq && recent.userId().equals(subscriber.userId)) {
+                enqueue(subscriber, event(seq, recent.name(), recent.data()));
+            }
+        }
+    }
+
+    private long parseSeq(String eventId) {
+        String prefix = epoch + "-";
+        if (!eventId.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private SseEmitter.SseEventBuilder event(long seq, String name, Object data) {
+        return SseEmitter.event().id(epoch + "-" + seq).name(name).data(data, MediaType.APPLICATION_JSON);
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        if (!subscriber.queue.offer(event)) {
+            // The client reconnects with its Last-Event-ID and catches up from the ring buffer.
+            drop(subscriber, "slow");
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException ex) {
+                subscriber.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            SseEmitter.SseEventBuilder event;
+            while (!subscriber.closed.get() && (event = subscriber.queue.poll()) != null) {
+                subscriber.writeStartedAt = System.nanoTime();
+                subscriber.writing = true;
+                try {
+                    subscriber.emitter.send(event);
+                } catch (IOException | IllegalStateException ex) {
+                    remove(subscriber);
+                    return;
+                } finally {
+                    subscriber.writing = false;
+                }
+            }
+            subscriber.draining.set(false);
+        } while (!subscriber.closed.get() && !subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    // Completion gets a thread of its own: it waits for any write still blocked on this client.
+    private void drop(Subscriber subscriber, String reason) {
+        if (!remove(subscriber)) {
+            return;
+        }
+        meterRegistry.counter("smartbank.stream.dropped", "reason", reason).increment();
+        try {
+            dispatcher.execute(subscriber.emitter::complete);
+        } catch (RejectedExecutionException ex) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return false;
+        }
+        subscriber.queue.clear();
+        subscribers.computeIfPresent(subscriber.userId, (id, own) -> {
+            own.remove(subscriber);
+            return own.isEmpty() ? null : own;
+        });
+        connections.decrementAndGet();
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        List<Subscriber> open = new ArrayList<>();
+        subscribers.values().forEach(open::addAll);
+        for (Subscriber subscriber : open) {
+            if (remove(subscriber)) {
+                subscriber.emitter.complete();
+            }
+        }
+        dispatcher.shutdown();
+        dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private record RecentEvent(long seq, Long userId, String name, Object data) {
+    }
+
+    private static final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile long writeStartedAt;
+        private volatile boolean writing;
+
+        private Subscriber(Long userId, SseEmitter emitter, BlockingQueue<SseEmitter.SseEventBuilder> queue) {
+            this.userId = Objects.requireNonNull(userId);
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+-- One-off conversion of bank_transactions into a table range-partitioned by month on
+-- transaction_date. Run it with the application stopped:
+--
+--   psql "$DB_URL" -v ON_ERROR_STOP=1 -f partition-bank-transactions.sql
+--
+-- Partitions are named bank_transactions_pYYYYMM. The script creates one for every month that
+-- holds data, plus the next three; after that TransactionPartitionManager creates upcoming months
+-- and archives expired ones. The old heap table is kept as bank_transactions_legacy until
+-- it is dropped by hand.
+
+BEGIN;
+
+LOCK TABLE bank_transactions IN ACCESS EXCLUSIVE MODE;
+
+ALTER TABLE bank_transactions RENAME TO bank_transactions_legacy;
+ALTER TABLE bank_transactions_legacy RENAME CONSTRAINT bank_transactions_pkey TO bank_transactions_legacy_pkey;
+ALTER INDEX IF EXISTS idx_bank_tx_source_date_id RENAME TO idx_bank_tx_legacy_source_date_id;
+ALTER INDEX IF EXISTS idx_bank_tx_target_date_id RENAME TO idx_bank_tx_legacy_target_date_id;
+
+CREATE TABLE bank_transactions (
+    LIKE bank_transactions_legacy INCLUDING DEFAULTS INCLUDING CONSTRAINTS INCLUDING IDENTITY
+) PARTITION BY RANGE (transaction_date);
+
+-- A partitioned table's primary key must contain the partition key.
+ALTER TABLE bank_transactions ADD CONSTRAINT bank_transactions_pkey PRIMARY KEY (id, transaction_date);
+ALTER TABLE bank_transactions
+    ADD CONSTRAINT fk_bank_tx_source_account FOREIGN KEY (source_account_id) REFERENCES account (id);
+ALTER TABLE bank_transactions
+    ADD CONSTRAINT fk_bank_tx_target_account FOREIGN KEY (target_account_id) REFERENCES account (id);
+CREATE INDEX idx_bank_tx_source_date_id ON bank_transactions (source_account_id, transaction_date, id);
+CREATE INDEX idx_bank_tx_target_date_id ON bank_transactions (target_account_id, transaction_date, id);
+
+DO $$
+DECLARE
+    m timestamp := date_trunc('month', coalesce((SELECT min(transaction_date) FROM bank_transactions_legacy), now()));
+    last timestamp := date_trunc('month', greatest((SELECT max(transaction_date) FROM bank_transactions_legacy), now()))
+            + interval '3 months';
+BEGIN
+    WHILE m <= last LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF bank_transactions FOR VALUES FROM (%L) TO (%L)',
+                       'bank_transactions_p' || to_char(m, 'YYYYMM'), m, m + interval '1 month');
+        m := m + interval '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO bank_transactions OVERRIDING SYSTEM VALUE SELECT * FROM bank_transactions_legacy;
+
+SELECT setval(pg_get_serial_sequence('bank_transactions', 'id'),
+              coalesce((SELECT max(id) FROM bank_transactions), 0) + 1, false);
+
+COMMIT;
+
+ANALYZE bank_transactions;
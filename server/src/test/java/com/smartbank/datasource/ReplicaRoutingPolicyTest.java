@@ -0,0 +1,150 @@
+package com.smartbank.datasource;
+
+import com.smartbank.cache.CacheInvalidationChannel;
+import com.smartbank.event.AccountChangedEvent;
+import com.smartbank.security.AuthenticatedUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingPolicyTest {
+    private static final long MAX_LAG_MS = 1000;
+    private static final long STICKY_MS = 200;
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private final ResultSet lagResult = mock(ResultSet.class);
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<CacheInvalidationChannel> channelProvider = mock(ObjectProvider.class);
+    private ReplicaRoutingPolicy policy;
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        Statement statement = mock(Statement.class);
+        when(replicaConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(lagResult);
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        when(lagResult.getMetaData()).thenReturn(metaData);
+
+        policy = new ReplicaRoutingPolicy(replica, channelProvider, new SimpleMeterRegistry(), MAX_LAG_MS, STICKY_MS);
+        routing = new ReadWriteRoutingDataSource(policy);
+        routing.setTargetDataSources(Map.of(DataSourceRole.PRIMARY, primary, DataSourceRole.REPLICA, replica));
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        SecurityContextHolder.clearContext();
+    }
+
+    private void replicaLagsBy(double lagMs) throws SQLException {
+        when(lagResult.next()).thenReturn(true, false);
+        when(lagResult.getDouble(1)).thenReturn(lagMs);
+        policy.probe();
+    }
+
+    private Connection connect(boolean readOnly) throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+        return routing.getConnection();
+    }
+
+    private static void signIn(long userId) {
+        AuthenticatedUser user = new AuthenticatedUser("user" + userId + "@example.com", userId, userId);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicaAndWritesToThePrimary() throws SQLException {
+        replicaLagsBy(0);
+
+        assertThat(connect(true)).isSameAs(replicaConnection);
+        assertThat(connect(false)).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void nothingGoesToTheReplicaBeforeItHasBeenProbed() throws SQLException {
+        assertThat(connect(true)).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void aLaggingReplicaFallsBackToThePrimaryUntilItCatchesUp() throws SQLException {
+        replicaLagsBy(MAX_LAG_MS + 500);
+        assertThat(connect(true)).isSameAs(primaryConnection);
+
+        replicaLagsBy(MAX_LAG_MS - 500);
+        assertThat(connect(true)).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void anUnreachableReplicaFallsBackToThePrimary() throws SQLException {
+        replicaLagsBy(0);
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        policy.probe();
+
+        assertThat(connect(true)).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void aUserReadsFromThePrimaryForStickyMsAfterTheirOwnWrite() throws Exception {
+        replicaLagsBy(0);
+        signIn(7);
+        policy.onAccountChanged(new AccountChangedEvent(70L, 7L));
+
+        assertThat(connect(true)).isSameAs(primaryConnection);
+        signIn(8);
+        assertThat(connect(true)).as("other users are unaffected").isSameAs(replicaConnection);
+
+        Thread.sleep(STICKY_MS + 100);
+        signIn(7);
+        assertThat(connect(true)).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void writesCommittedOnAnotherNodeAlsoMakeTheUserSticky() throws SQLException {
+        CacheInvalidationChannel channel = mock(CacheInvalidationChannel.class);
+        doAnswer(call -> {
+            call.<Consumer<CacheInvalidationChannel>>getArgument(0).accept(channel);
+            return null;
+        }).when(channelProvider).ifAvailable(any());
+        @SuppressWarnings("unchecked")
+        Consumer<Long>[] listener = new Consumer[1];
+        doAnswer(call -> listener[0] = call.getArgument(0)).when(channel).subscribe(any());
+        policy.afterSingletonsInstantiated();
+        replicaLagsBy(0);
+
+        listener[0].accept(7L);
+        signIn(7);
+
+        assertThat(connect(true)).isSameAs(primaryConnection);
+    }
+}
@@ -0,0 +1,74 @@
+package com.smartbank.security;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTest {
+    private static final int LOGIN_PER_IP = 10;
+    private static final int LOGIN_PER_EMAIL = 3;
+
+    private final List<String> forwardedBodies = new ArrayList<>();
+    private final FilterChain chain = (request, response) ->
+            forwardedBodies.add(new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+    private final RateLimitFilter filter = new RateLimitFilter(JsonMapper.builder().findAndAddModules().build(),
+            new SimpleMeterRegistry(), LOGIN_PER_IP, LOGIN_PER_IP, LOGIN_PER_EMAIL, LOGIN_PER_EMAIL, 5, 5, 3, 3, 5, 5, 3, 3,
+            100, 1200, 1000, 600, 150, 50);
+
+    private int login(String ip, String email) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/login");
+        request.setRemoteAddr(ip);
+        request.setContentType("application/json");
+        request.setContent(("{\"email\":\"" + email + "\",\"password\":\"x\"}").getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response.getStatus();
+    }
+
+    @Test
+    void guessesForOneEmailFromManyAddressesAreLimitedByTheEmailBucket() throws Exception {
+        for (int i = 0; i < LOGIN_PER_EMAIL; i++) {
+            assertThat(login("10.0.0." + i, "victim@example.com")).isEqualTo(200);
+        }
+
+        assertThat(login("10.0.1.1", "Victim@Example.com ")).isEqualTo(429);
+        assertThat(login("10.0.1.2", "someone@example.com")).isEqualTo(200);
+    }
+
+    @Test
+    void oneAddressIsStillLimitedAcrossEmails() throws Exception {
+        for (int i = 0; i < LOGIN_PER_IP; i++) {
+            assertThat(login("10.0.0.1", "user" + i + "@example.com")).isEqualTo(200);
+        }
+
+        assertThat(login("10.0.0.1", "fresh@example.com")).isEqualTo(429);
+    }
+
+    @Test
+    void theControllerStillReceivesTheBody() throws Exception {
+        login("10.0.0.1", "user@example.com");
+
+        assertThat(forwardedBodies).containsExactly("{\"email\":\"user@example.com\",\"password\":\"x\"}");
+    }
+
+    @Test
+    void oversizedAuthBodiesAreRefused() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/signup");
+        request.setContent(new byte[64 * 1024]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(413);
+        assertThat(forwardedBodies).isEmpty();
+    }
+}
@@ -0,0 +1,100 @@
+package com.smartbank.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    // Arbitrary origin far from zero, since System.nanoTime() can be negative.
+    private static final long T0 = -5_000 * SECOND;
+
+    @Test
+    void aFullBucketAllowsABurstOfCapacityThenReportsTheWait() {
+        TokenBucket bucket = new TokenBucket(5, SECOND);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire(T0)).as("request %d", i).isZero();
+        }
+
+        assertThat(bucket.tryAcquire(T0)).isEqualTo(SECOND);
+        assertThat(bucket.tryAcquire(T0 + SECOND / 4)).isEqualTo(3 * SECOND / 4);
+    }
+
+    @Test
+    void tokensComeBackAtTheConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(2, SECOND);
+        bucket.tryAcquire(T0);
+        bucket.tryAcquire(T0);
+
+        assertThat(bucket.tryAcquire(T0 + SECOND - 1)).isEqualTo(1);
+        assertThat(bucket.tryAcquire(T0 + SECOND)).isZero();
+        assertThat(bucket.tryAcquire(T0 + SECOND)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void rejectedRequestsDoNotUseUpTokens() {
+        TokenBucket bucket = new TokenBucket(1, SECOND);
+        bucket.tryAcquire(T0);
+
+        for (int i = 0; i < 100; i++) {
+            bucket.tryAcquire(T0 + i);
+        }
+
+        assertThat(bucket.tryAcquire(T0 + SECOND)).isZero();
+    }
+
+    @Test
+    void idleTimeRefillsNoMoreThanCapacity() {
+        TokenBucket bucket = new TokenBucket(3, SECOND);
+        bucket.tryAcquire(T0);
+
+        long later = T0 + 3600 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(later)).isZero();
+        }
+        assertThat(bucket.tryAcquire(later)).isPositive();
+    }
+
+    @Test
+    void aSteadyRateAtTheLimitIsNeverRejected() {
+        TokenBucket bucket = new TokenBucket(1, SECOND / 10);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(bucket.tryAcquire(T0 + i * (SECOND / 10))).isZero();
+        }
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100, SECOND);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryAcquire(T0) == 0) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(granted.get()).isEqualTo(100);
+    }
+}
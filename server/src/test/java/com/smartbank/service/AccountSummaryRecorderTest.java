@@ -0,0 +1,222 @@
+package com.smartbank.service;
+
+import com.smartbank.entity.Account;
+import com.smartbank.entity.Transaction;
+import com.smartbank.entity.enums.TransactionStatus;
+import com.smartbank.entity.enums.TransactionType;
+import com.smartbank.repository.AccountSummaryWriter;
+import com.smartbank.repository.AccountSummaryWriter.SummaryDelta;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class AccountSummaryRecorderTest {
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 1);
+
+    private final AccountSummaryWriter writer = mock(AccountSummaryWriter.class);
+    private final AccountSummaryRecorder recorder = new AccountSummaryRecorder(writer);
+    // Summary rows as the upsert leaves them, keyed by account|date|stripe.
+    private final Map<String, long[]> counts = new TreeMap<>();
+    private final Map<String, BigDecimal[]> amounts = new TreeMap<>();
+    private final List<List<SummaryDelta>> writes = new ArrayList<>();
+
+    AccountSummaryRecorderTest() {
+        doAnswer(call -> {
+            List<SummaryDelta> deltas = call.getArgument(0);
+            writes.add(deltas);
+            for (SummaryDelta d : deltas) {
+                String key = d.accountId() + "|" + d.date() + "|" + d.stripe();
+                long[] c = counts.computeIfAbsent(key, k -> new long[6]);
+                c[0] += d.deposits();
+                c[1] += d.withdrawals();
+                c[2] += d.transfers();
+                c[3] += d.pending();
+                c[4] += d.completed();
+                c[5] += d.failed();
+                BigDecimal[] a = amounts.computeIfAbsent(key, k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+                a[0] = a[0].add(d.inflow());
+                a[1] = a[1].add(d.outflow());
+            }
+            return null;
+        }).when(writer).upsertAll(any());
+    }
+
+    private static Account account(long id, Integer stripes) {
+        Account account = new Account();
+        account.setId(id);
+        account.setBalanceStripes(stripes);
+        return account;
+    }
+
+    private static Transaction transaction(long id, TransactionType type, Account source, Account target,
+                                           String amount, LocalDateTime date) {
+        Transaction tx = new Transaction();
+        tx.setId(id);
+        tx.setTransactionType(type);
+        tx.setAmount(new BigDecimal(amount));
+        tx.setTransactionDate(date);
+        tx.setSourceAccount(source);
+        tx.setTargetAccount(target);
+        return tx;
+    }
+
+    /** The incremental summary, with stripes added up, per account|date. */
+    private Map<String, String> incremental() {
+        Map<String, long[]> c = new TreeMap<>();
+        Map<String, BigDecimal[]> a = new TreeMap<>();
+        counts.forEach((key, row) -> {
+            String day = key.substring(0, key.lastIndexOf('|'));
+            long[] sum = c.computeIfAbsent(day, k -> new long[6]);
+            for (int i = 0; i < 6; i++) {
+                sum[i] += row[i];
+            }
+            BigDecimal[] money = a.computeIfAbsent(day, k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            money[0] = money[0].add(amounts.get(key)[0]);
+            money[1] = money[1].add(amounts.get(key)[1]);
+        });
+        return render(c, a);
+    }
+
+    /**
+     * What AccountSummaryWriter.rebuild computes from the final table: one contribution per source
+     * account and, for transfers, one per target, as in REBUILD_SQL.
+     */
+    private static Map<String, String> rebuilt(List<Transaction> table) {
+        Map<String, long[]> c = new TreeMap<>();
+        Map<String, BigDecimal[]> a = new TreeMap<>();
+        for (Transaction tx : table) {
+            boolean completed = tx.getTransactionStatus() == TransactionStatus.COMPLETED;
+            String day = tx.getTransactionDate().toLocalDate().toString();
+            String source = tx.getSourceAccount().getId() + "|" + day;
+            long[] s = c.computeIfAbsent(source, k -> new long[6]);
+            s[switch (tx.getTransactionType()) {
+                case DEPOSIT -> 0;
+                case WITHDRAWAL -> 1;
+                case TRANSFER -> 2;
+            }]++;
+            s[3 + statusIndex(tx.getTransactionStatus())]++;
+            BigDecimal[] sm = a.computeIfAbsent(source, k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            if (completed) {
+                int side = tx.getTransactionType() == TransactionType.DEPOSIT ? 0 : 1;
+                sm[side] = sm[side].add(tx.getAmount());
+            }
+            if (tx.getTransactionType() == TransactionType.TRANSFER && tx.getTargetAccount() != null) {
+                String target = tx.getTargetAccount().getId() + "|" + day;
+                long[] t = c.computeIfAbsent(target, k -> new long[6]);
+                t[2]++;
+                t[3 + statusIndex(tx.getTransactionStatus())]++;
+                BigDecimal[] tm = a.computeIfAbsent(target, k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+                if (completed) {
+                    tm[0] = tm[0].add(tx.getAmount());
+                }
+            }
+        }
+        return render(c, a);
+    }
+
+    private static int statusIndex(TransactionStatus status) {
+        return switch (status) {
+            case PENDING -> 0;
+            case COMPLETED -> 1;
+            case FAILED -> 2;
+        };
+    }
+
+    // Rows that net out to zero are the same as absent rows.
+    private static Map<String, String> render(Map<String, long[]> c, Map<String, BigDecimal[]> a) {
+        Map<String, String> rendered = new TreeMap<>();
+        c.forEach((key, row) -> {
+            BigDecimal[] money = a.get(key);
+            boolean empty = Arrays.stream(row).allMatch(v -> v == 0)
+                    && money[0].signum() == 0 && money[1].signum() == 0;
+            if (!empty) {
+                rendered.put(key, Arrays.toString(row) + " in=" + money[0].stripTrailingZeros().toPlainString()
+                        + " out=" + money[1].stripTrailingZeros().toPlainString());
+            }
+        });
+        return rendered;
+    }
+
+    @Test
+    void deltasForARandomHistoryAddUpToWhatARebuildComputes() {
+        Random random = new Random(42);
+        List<Account> accounts = List.of(account(1, null), account(2, null), account(3, 4), account(4, 8));
+        List<Transaction> table = new ArrayList<>();
+        TransactionType[] types = TransactionType.values();
+        long ids = 0;
+
+        for (int step = 0; step < 2000; step++) {
+            int action = random.nextInt(10);
+            List<Transaction> pending = table.stream()
+                    .filter(tx -> tx.getTransactionStatus() == TransactionStatus.PENDING).toList();
+            if (action < 5 || table.isEmpty()) {
+                TransactionType type = types[random.nextInt(types.length)];
+                Account source = accounts.get(random.nextInt(accounts.size()));
+                Account target = type == TransactionType.TRANSFER ? accounts.get(random.nextInt(accounts.size())) : null;
+                Transaction tx = transaction(++ids, type, source, target, random.nextInt(1, 10_000) + ".25",
+                        DAY.plusDays(random.nextInt(3)).atTime(random.nextInt(24), 0));
+                TransactionStatus status = random.nextBoolean() ? TransactionStatus.PENDING : TransactionStatus.COMPLETED;
+                tx.setTransactionStatus(status);
+                table.add(tx);
+                recorder.record(tx, null, status);
+            } else if (action < 8 && !pending.isEmpty()) {
+                Transaction tx = pending.get(random.nextInt(pending.size()));
+                TransactionStatus to = random.nextBoolean() ? TransactionStatus.COMPLETED : TransactionStatus.FAILED;
+                recorder.record(tx, TransactionStatus.PENDING, to);
+                tx.setTransactionStatus(to);
+            } else {
+                Transaction tx = table.remove(random.nextInt(table.size()));
+                recorder.record(tx, tx.getTransactionStatus(), null);
+            }
+        }
+
+        assertThat(incremental()).isNotEmpty().isEqualTo(rebuilt(table));
+    }
+
+    @Test
+    void aBatchIsMergedIntoOneDeltaPerRowInLockOrder() {
+        Account a = account(2, null);
+        Account b = account(1, null);
+        List<Transaction> batch = List.of(
+                transaction(1, TransactionType.TRANSFER, a, b, "10", DAY.atTime(9, 0)),
+                transaction(2, TransactionType.TRANSFER, a, b, "5", DAY.atTime(10, 0)),
+                transaction(3, TransactionType.WITHDRAWAL, a, null, "1", DAY.atTime(11, 0)));
+
+        recorder.record(batch, null, TransactionStatus.COMPLETED);
+
+        assertThat(writes).hasSize(1);
+        List<SummaryDelta> deltas = writes.get(0);
+        assertThat(deltas).extracting(SummaryDelta::accountId).containsExactly(1L, 2L);
+        assertThat(deltas.get(0).transfers()).isEqualTo(2);
+        assertThat(deltas.get(0).inflow()).isEqualByComparingTo("15");
+        assertThat(deltas.get(1).withdrawals()).isEqualTo(1);
+        assertThat(deltas.get(1).outflow()).isEqualByComparingTo("16");
+    }
+
+    @Test
+    void moneyOnlyCountsOnceATransactionCompletes() {
+        Account a = account(1, null);
+        Transaction tx = transaction(1, TransactionType.DEPOSIT, a, null, "20", DAY.atTime(9, 0));
+
+        recorder.record(tx, null, TransactionStatus.PENDING);
+        assertThat(writes.get(0).get(0).inflow()).isEqualByComparingTo("0");
+
+        recorder.record(tx, TransactionStatus.PENDING, TransactionStatus.FAILED);
+        assertThat(writes.get(1).get(0).inflow()).isEqualByComparingTo("0");
+        assertThat(writes.get(1).get(0).pending()).isEqualTo(-1);
+        assertThat(writes.get(1).get(0).failed()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,56 @@
+package com.smartbank.service;
+
+import com.smartbank.repository.AccountDailySummaryRepo;
+import com.smartbank.repository.AccountSummaryWriter;
+import com.smartbank.repository.TransactionArchiveRepo;
+import com.smartbank.security.CurrentUser;
+import com.smartbank.support.NoOpTransactionManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AccountSummaryServiceImplTest {
+    private final AccountSummaryWriter writer = mock(AccountSummaryWriter.class);
+    private final TransactionArchiveRepo archiveRepo = mock(TransactionArchiveRepo.class);
+    private final AccountSummaryServiceImpl service = new AccountSummaryServiceImpl(mock(AccountDailySummaryRepo.class),
+            writer, mock(CurrentUser.class), new TransactionTemplate(new NoOpTransactionManager()), archiveRepo);
+
+    @Test
+    void rebuildsCoverTheInclusiveRangeInMonthSizedChunks() {
+        List<LocalDate[]> chunks = new ArrayList<>();
+        when(writer.rebuild(any(), any())).thenAnswer(call -> {
+            chunks.add(new LocalDate[]{call.getArgument(0), call.getArgument(1)});
+            return 10;
+        });
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        LocalDate to = LocalDate.of(2025, 3, 15);
+
+        int rows = service.rebuild(from, to);
+
+        assertThat(rows).isEqualTo(30);
+        assertThat(chunks).extracting(c -> c[0]).containsExactly(from, from.plusDays(31), from.plusDays(62));
+        assertThat(chunks).extracting(c -> c[1]).containsExactly(from.plusDays(31), from.plusDays(62), to.plusDays(1));
+    }
+
+    @Test
+    void archivedDaysAreNotRebuilt() {
+        when(archiveRepo.findArchivedUntil()).thenReturn(Optional.of(LocalDate.of(2024, 1, 1)));
+
+        assertThatThrownBy(() -> service.rebuild(LocalDate.of(2023, 12, 1), LocalDate.of(2024, 2, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.rebuild(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(writer);
+    }
+}
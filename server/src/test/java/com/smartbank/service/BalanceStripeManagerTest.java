@@ -0,0 +1,229 @@
+package com.smartbank.service;
+
+import com.smartbank.entity.Account;
+import com.smartbank.entity.AccountBalanceStripe;
+import com.smartbank.repository.AccountBalanceStripeRepo;
+import com.smartbank.repository.AccountRepo;
+import com.smartbank.support.NoOpTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BalanceStripeManagerTest {
+    private static final int MAX_STRIPES = 8;
+
+    private final AccountRepo accountRepo = mock(AccountRepo.class);
+    private final AccountLockManager lockManager = mock(AccountLockManager.class);
+    private final StripeTable stripes = new StripeTable();
+    private final Map<String, Account> accounts = new HashMap<>();
+    private BalanceStripeManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new BalanceStripeManager(accountRepo, stripes.repo, lockManager,
+                new TransactionTemplate(new NoOpTransactionManager()));
+        ReflectionTestUtils.setField(manager, "maxStripes", MAX_STRIPES);
+        when(lockManager.lockInOrder(any())).thenAnswer(call -> {
+            Map<String, Account> locked = new HashMap<>();
+            for (String number : call.<Collection<String>>getArgument(0)) {
+                if (accounts.containsKey(number)) {
+                    locked.put(number, accounts.get(number));
+                }
+            }
+            return locked;
+        });
+        when(lockManager.withRetry(any())).thenAnswer(call -> call.<Supplier<?>>getArgument(0).get());
+    }
+
+    private Account account(long id, String number, String balance) {
+        Account account = new Account();
+        account.setId(id);
+        account.setAccountNumber(number);
+        account.setBalance(new BigDecimal(balance));
+        accounts.put(number, account);
+        return account;
+    }
+
+    @Test
+    void creditsToAnUnstripedAccountAreLeftToTheRow() {
+        Account account = account(1, "ACC1", "100.00");
+
+        assertThat(manager.credit(account, new BigDecimal("5.00"))).isFalse();
+
+        verify(stripes.repo, never()).creditUnlockedStripe(anyLong(), anyInt(), anyInt(), any());
+        assertThat(manager.reportedBalance(account)).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void creditsLandOnStripesAndShowInTheReportedBalanceAndRevision() {
+        Account account = manager.configure(account(1, "ACC1", "100.00").getAccountNumber(), 4);
+        long revisionBefore = manager.revision(account);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(manager.credit(account, new BigDecimal("2.50"))).isTrue();
+        }
+
+        assertThat(account.getBalance()).isEqualByComparingTo("100.00");
+        assertThat(manager.reportedBalance(account)).isEqualByComparingTo("125.00");
+        assertThat(manager.revision(account)).isEqualTo(revisionBefore + 10);
+    }
+
+    @Test
+    void whenEveryStripeIsBusyTheCreditQueuesOnOne() {
+        Account account = manager.configure(account(1, "ACC1", "0").getAccountNumber(), 3);
+        stripes.holdAll(1L);
+
+        assertThat(manager.credit(account, BigDecimal.TEN)).isTrue();
+
+        verify(stripes.repo).creditStripe(anyLong(), anyInt(), any());
+        assertThat(manager.reportedBalance(account)).isEqualByComparingTo("10");
+    }
+
+    @Test
+    void foldMovesStripeBalancesIntoTheRowWithoutChangingTheReportedBalance() {
+        Account account = manager.configure(account(1, "ACC1", "50.00").getAccountNumber(), 4);
+        for (int i = 0; i < 6; i++) {
+            manager.credit(account, new BigDecimal("1.25"));
+        }
+        long revision = manager.revision(account);
+
+        assertThat(manager.fold(account)).isEqualByComparingTo("7.50");
+
+        assertThat(account.getBalance()).isEqualByComparingTo("57.50");
+        assertThat(stripes.repo.sumBalanceByAccountId(1L)).isEqualByComparingTo("0");
+        assertThat(manager.reportedBalance(account)).isEqualByComparingTo("57.50");
+        assertThat(manager.revision(account)).isEqualTo(revision);
+        assertThat(manager.fold(account)).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void removingStripesFoldsThemFirstAndKeepsTheRevisionMovingForward() {
+        Account account = manager.configure(account(1, "ACC1", "10.00").getAccountNumber(), 6);
+        for (int i = 0; i < 12; i++) {
+            manager.credit(account, BigDecimal.ONE);
+        }
+        long revision = manager.revision(account);
+
+        manager.configure("ACC1", 2);
+        assertThat(stripes.of(1L)).hasSize(2);
+        assertThat(manager.reportedBalance(account)).isEqualByComparingTo("22.00");
+        assertThat(manager.revision(account)).isGreaterThan(revision);
+        assertThat(manager.isStriped("ACC1")).isTrue();
+
+        revision = manager.revision(account);
+        manager.configure("ACC1", 0);
+        assertThat(stripes.of(1L)).isEmpty();
+        assertThat(account.isStriped()).isFalse();
+        assertThat(manager.isStriped("ACC1")).isFalse();
+        assertThat(account.getBalance()).isEqualByComparingTo("22.00");
+        assertThat(manager.revision(account)).isGreaterThan(revision);
+    }
+
+    @Test
+    void stripeCountsOutsideTheLimitAreRejected() {
+        account(1, "ACC1", "0");
+
+        assertThatThrownBy(() -> manager.configure("ACC1", MAX_STRIPES + 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> manager.configure("ACC1", -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void foldAllFoldsEveryStripedAccountAndCarriesOnPastFailures() {
+        Account first = manager.configure(account(1, "ACC1", "0").getAccountNumber(), 2);
+        Account second = manager.configure(account(2, "ACC2", "0").getAccountNumber(), 2);
+        manager.credit(first, BigDecimal.ONE);
+        manager.credit(second, BigDecimal.TEN);
+        when(accountRepo.findByBalanceStripesGreaterThan(0)).thenReturn(List.of(first, second));
+        doThrow(new CannotAcquireLockException("deadlock"))
+                .doAnswer(call -> call.<Supplier<?>>getArgument(0).get())
+                .when(lockManager).withRetry(any());
+
+        manager.foldAll();
+
+        assertThat(first.getBalance()).isEqualByComparingTo("0");
+        assertThat(second.getBalance()).isEqualByComparingTo("10");
+        assertThat(manager.reportedBalance(first)).isEqualByComparingTo("1");
+    }
+
+    /** In-memory account_balance_stripe with the semantics of the repository queries. */
+    private static class StripeTable {
+        final AccountBalanceStripeRepo repo = mock(AccountBalanceStripeRepo.class);
+        private final List<AccountBalanceStripe> rows = new ArrayList<>();
+        // Stripes whose row another transaction holds; SKIP LOCKED passes over them.
+        private final Set<AccountBalanceStripe> held = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        StripeTable() {
+            when(repo.lockAllByAccountId(anyLong())).thenAnswer(call -> of(call.getArgument(0)));
+            when(repo.creditUnlockedStripe(anyLong(), anyInt(), anyInt(), any())).thenAnswer(call -> {
+                int offset = call.getArgument(1);
+                int count = call.getArgument(2);
+                return of(call.getArgument(0)).stream()
+                        .sorted(Comparator.comparingInt(s -> (s.getStripe() + offset) % count))
+                        .filter(s -> !held.contains(s))
+                        .findFirst()
+                        .map(s -> credit(s, call.getArgument(3)))
+                        .orElse(0);
+            });
+            when(repo.creditStripe(anyLong(), anyInt(), any())).thenAnswer(call -> of(call.getArgument(0)).stream()
+                    .filter(s -> s.getStripe() == call.<Integer>getArgument(1))
+                    .findFirst()
+                    .map(s -> credit(s, call.getArgument(2)))
+                    .orElse(0));
+            when(repo.sumBalanceByAccountId(anyLong())).thenAnswer(call -> of(call.getArgument(0)).stream()
+                    .map(AccountBalanceStripe::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add));
+            when(repo.sumRevisionByAccountId(anyLong())).thenAnswer(call -> of(call.getArgument(0)).stream()
+                    .mapToLong(AccountBalanceStripe::getRevision).sum());
+            when(repo.saveAll(any())).thenAnswer(call -> {
+                call.<Iterable<AccountBalanceStripe>>getArgument(0).forEach(rows::add);
+                return call.getArgument(0);
+            });
+            doAnswer(call -> {
+                call.<Iterable<AccountBalanceStripe>>getArgument(0).forEach(rows::remove);
+                return null;
+            }).when(repo).deleteAll(any());
+        }
+
+        List<AccountBalanceStripe> of(long accountId) {
+            return rows.stream()
+                    .filter(s -> s.getAccount().getId() == accountId)
+                    .sorted(Comparator.comparingInt(AccountBalanceStripe::getStripe))
+                    .toList();
+        }
+
+        void holdAll(long accountId) {
+            held.addAll(of(accountId));
+        }
+
+        private static int credit(AccountBalanceStripe stripe, BigDecimal amount) {
+            stripe.setBalance(stripe.getBalance().add(amount));
+            stripe.setRevision(stripe.getRevision() + 1);
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.smartbank.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.smartbank.dto.TransactionRequestDTO;
+import com.smartbank.dto.TransactionResponseDTO;
+import com.smartbank.entity.IdempotencyRecord;
+import com.smartbank.exception.IdempotencyConflictException;
+import com.smartbank.exception.ServiceOverloadedException;
+import com.smartbank.mapper.TransactionMapperImpl;
+import com.smartbank.repository.AccountPinView;
+import com.smartbank.repository.AccountRepo;
+import com.smartbank.repository.IdempotencyRecordRepo;
+import com.smartbank.repository.TransactionBatchWriter;
+import com.smartbank.repository.TransactionRepo;
+import com.smartbank.security.CurrentUser;
+import com.smartbank.security.JwtUtil;
+import com.smartbank.service.IdempotencyService.IdempotentResult;
+import com.smartbank.support.NoOpTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceImplTest {
+    private static final long USER_ID = 7L;
+
+    // Stands in for the idempotency_record table, shared by every "node" built in a test.
+    private final Map<Long, IdempotencyRecord> records = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    private IdempotencyRecordRepo recordRepo;
+    private CurrentUser currentUser;
+    private TransactionTemplate transactionTemplate;
+    private IdempotencyCommitMarker commitMarker;
+
+    @BeforeEach
+    void setUp() {
+        recordRepo = mock(IdempotencyRecordRepo.class);
+        when(recordRepo.findByUserIdAndIdempotencyKey(anyLong(), anyString())).thenAnswer(inv -> find(inv.getArgument(0), inv.getArgument(1)));
+        when(recordRepo.saveAndFlush(any(IdempotencyRecord.class))).thenAnswer(inv -> {
+            IdempotencyRecord claim = inv.getArgument(0);
+            synchronized (records) {
+                if (find(claim.getUserId(), claim.getIdempotencyKey()).isPresent()) {
+                    throw new DataIntegrityViolationException("uk_idempotency_user_key");
+                }
+                claim.setId(nextId.incrementAndGet());
+                records.put(claim.getId(), claim);
+            }
+            return claim;
+        });
+        when(recordRepo.storeResponse(anyLong(), anyString())).thenAnswer(inv -> {
+            records.get(inv.<Long>getArgument(0)).setResponse(inv.getArgument(1));
+            return 1;
+        });
+        when(recordRepo.deleteUncommitted(anyLong())).thenAnswer(inv -> {
+            IdempotencyRecord record = records.get(inv.<Long>getArgument(0));
+            return record != null && !record.isCommitted() && records.remove(record.getId()) != null ? 1 : 0;
+        });
+
+        currentUser = mock(CurrentUser.class);
+        when(currentUser.userId()).thenReturn(USER_ID);
+        when(currentUser.email()).thenReturn("jane@example.com");
+
+        // Sets the flag the same way the real UPDATE does, from inside the committing transaction.
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public int update(String sql, Object... args) {
+                records.get((Long) args[0]).setCommitted(true);
+                return 1;
+            }
+        };
+        commitMarker = new IdempotencyCommitMarker(jdbcTemplate);
+        NoOpTransactionManager transactionManager = new NoOpTransactionManager();
+        transactionManager.setTransactionExecutionListeners(List.of(commitMarker));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        records.clear();
+    }
+
+    private Optional<IdempotencyRecord> find(Long userId, String key) {
+        return records.values().stream()
+                .filter(r -> r.getUserId().equals(userId) && r.getIdempotencyKey().equals(key))
+                .findFirst();
+    }
+
+    // Each call builds a service with its own cache, like another node sharing the same table.
+    private IdempotencyServiceImpl node(long waitTimeoutMs) {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        return new IdempotencyServiceImpl(recordRepo, currentUser, objectMapper, transactionTemplate,
+                commitMarker, new SimpleMeterRegistry(), 100, 3600, waitTimeoutMs);
+    }
+
+    private TransactionResponseDTO committedWork(AtomicInteger runs) {
+        return transactionTemplate.execute(status -> {
+            TransactionResponseDTO response = new TransactionResponseDTO();
+            response.setId((long) runs.incrementAndGet());
+            response.setTransactionStatus("COMPLETED");
+            return response;
+        });
+    }
+
+    @Test
+    void replaysTheStoredResponseWithoutRunningTheWorkAgain() {
+        AtomicInteger runs = new AtomicInteger();
+        IdempotencyServiceImpl service = node(1000);
+
+        IdempotentResult<TransactionResponseDTO> first = service.execute("key-1", "deposit|100", TransactionResponseDTO.class, () -> committedWork(runs));
+        IdempotentResult<TransactionResponseDTO> again = service.execute("key-1", "deposit|100", TransactionResponseDTO.class, () -> committedWork(runs));
+
+        assertThat(first.replayed()).isFalse();
+        assertThat(again.replayed()).isTrue();
+        assertThat(again.value().getId()).isEqualTo(first.value().getId());
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void replaysFromTheStoredRecordOnAnotherNode() {
+        AtomicInteger runs = new AtomicInteger();
+        node(1000).execute("key-1", "deposit|100", TransactionResponseDTO.class, () -> committedWork(runs));
+
+        IdempotentResult<TransactionResponseDTO> replay = node(1000)
+                .execute("key-1", "deposit|100", TransactionResponseDTO.class, () -> committedWork(runs));
+
+        assertThat(replay.replayed()).isTrue();
+        assertThat(replay.value().getId()).isEqualTo(1L);
+        assertThat(runs).hasValue(1);
+        assertThat(records.values()).singleElement().satisfies(record -> {
+            assertThat(record.isCommitted()).isTrue();
+            assertThat(record.getResponse()).contains("\"id\":1");
+        });
+    }
+
+    @Test
+    void rejectsAKeyReusedForADifferentRequest() {
+        AtomicInteger runs = new AtomicInteger();
+        IdempotencyServiceImpl service = node(1000);
+        service.execute("key-1", "deposit|100", TransactionResponseDTO.class, () -> committedWork(runs));
+
+        assertThatThrownBy(() -> service.execute("key-1", "deposit|200", TransactionResponseDTO.class, () -> committedWork(runs)))
+                .isInstanceOf(IdempotencyConflictException.class)
+                .hasMessageContaining("different request");
+        assertThatThrownBy(() -> node(1000).execute("key-1", "deposit|200", TransactionResponseDTO.class, () -> committedWork(runs)))
+                .isInstanceOf(IdempotencyConflictException.class);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void releasesTheClaimWhenTheWorkRolledBack() {
+        AtomicInteger runs = new AtomicInteger();
+        IdempotencyServiceImpl service = node(1000);
+
+        assertThatThrownBy(() -> service.execute("key-1", "withdraw|100", TransactionResponseDTO.class,
+                () -> transactionTemplate.execute(status -> {
+                    runs.incrementAndGet();
+                    throw new IllegalArgumentException("Insufficient balance");
+                })))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(records).isEmpty();
+
+        IdempotentResult<TransactionResponseDTO> retry = service.execute("key-1", "withdraw|100", TransactionResponseDTO.class, () -> committedWork(runs));
+        assertThat(retry.replayed()).isFalse();
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    void keepsTheClaimOnceTheWorkCommittedAndRefusesToRunItAgain() {
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThatThrownBy(() -> node(1000).execute("key-1", "deposit|100", TransactionResponseDTO.class, () -> {
+            committedWork(runs);
+            throw new IllegalStateException("connection reset after commit");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(records.values()).singleElement().satisfies(record -> {
+            assertThat(record.isCommitted()).isTrue();
+            assertThat(record.getResponse()).isNull();
+        });
+
+        assertThatThrownBy(() -> node(100).execute("key-1", "deposit|100", TransactionResponseDTO.class, () -> committedWork(runs)))
+                .isInstanceOf(IdempotencyConflictException.class)
+                .hasMessageContaining("was applied");
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void aDuplicateOfAClaimThatIsStillRunningGetsAConflictAfterWaiting() throws Exception {
+        IdempotencyRecord claim = new IdempotencyRecord();
+        claim.setUserId(USER_ID);
+        claim.setIdempotencyKey("key-1");
+        claim.setRequestHash(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest("deposit|100".getBytes(StandardCharsets.UTF_8))));
+        claim.setCreatedAt(LocalDateTime.now());
+        claim.setExpiresAt(claim.getCreatedAt().plusHours(1));
+        recordRepo.saveAndFlush(claim);
+
+        AtomicInteger runs = new AtomicInteger();
+        assertThatThrownBy(() -> node(100).execute("key-1", "deposit|100", TransactionResponseDTO.class, () -> committedWork(runs)))
+                .isInstanceOf(IdempotencyConflictException.class)
+                .hasMessageContaining("still in progress");
+        assertThat(runs).hasValue(0);
+        assertThat(records).containsKey(claim.getId());
+    }
+
+    @Test
+    void aQueueFullSubmissionLeavesTheKeyFreeForTheRetry() throws InterruptedException {
+        TransactionRepo transactionRepo = mock(TransactionRepo.class);
+        AccountRepo accountRepo = mock(AccountRepo.class);
+        AccountPinView pin = mock(AccountPinView.class);
+        when(pin.getAccountNumber()).thenReturn("ACC-1");
+        when(pin.getPin()).thenReturn("hash");
+        when(accountRepo.findPinsByAccountNumberIn(any())).thenReturn(List.of(pin));
+        PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.matches("1234", "hash")).thenReturn(true);
+        // No queue capacity at all, so every submission is turned away.
+        TransactionPipeline pipeline = new TransactionPipeline(new SimpleMeterRegistry(), 1, 0, 3);
+        TransactionServiceImpl transactions = new TransactionServiceImpl(transactionRepo, accountRepo, passwordEncoder,
+                currentUser, mock(TransactionBatchWriter.class), mock(AccountLockManager.class), transactionTemplate,
+                mock(JwtUtil.class), new TransactionMapperImpl(), mock(ApplicationEventPublisher.class),
+                mock(BalanceStripeManager.class), pipeline, mock(AccountSummaryRecorder.class),
+                mock(TransactionPartitionManager.class), new TransactionMetrics(new SimpleMeterRegistry()));
+
+        TransactionRequestDTO dto = new TransactionRequestDTO();
+        dto.setTransactionType("WITHDRAWAL");
+        dto.setSourceAccountNumber("ACC-1");
+        dto.setPin("1234");
+        dto.setAmount(new BigDecimal("100"));
+        IdempotencyServiceImpl service = node(1000);
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            // A conflict here would mean the first 503 had burned the key for its whole TTL.
+            assertThatThrownBy(() -> service.execute("key-1", dto.idempotencyFingerprint(), TransactionResponseDTO.class,
+                    () -> transactions.submitTransaction(dto)))
+                    .isInstanceOfSatisfying(ServiceOverloadedException.class,
+                            ex -> assertThat(ex.getRetryAfterSeconds()).isEqualTo(3));
+            assertThat(records).isEmpty();
+        }
+        verify(transactionRepo, never()).save(any());
+        verify(accountRepo, never()).findByAccountNumber(eq("ACC-1"));
+        pipeline.shutdown();
+    }
+}
@@ -0,0 +1,263 @@
+package com.smartbank.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.smartbank.entity.MailOutboxMessage;
+import com.smartbank.entity.enums.OutboxStatus;
+import com.smartbank.repository.MailOutboxRepo;
+import com.smartbank.support.NoOpTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.BeanUtils;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MailOutboxDispatcherTest {
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BACKOFF_MS = 2000;
+
+    @RegisterExtension
+    static final GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final OutboxTable table = new OutboxTable();
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+
+    @BeforeEach
+    void setUp() {
+        greenMail.reset();
+    }
+
+    private MailOutboxDispatcher dispatcher(JavaMailSender sender, long leaseMs) {
+        MailOutboxDispatcher dispatcher = new MailOutboxDispatcher(table.repo, sender, transactionTemplate,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 10);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(dispatcher, "backoffMs", BACKOFF_MS);
+        ReflectionTestUtils.setField(dispatcher, "maxBackoffMs", 600_000L);
+        ReflectionTestUtils.setField(dispatcher, "leaseMs", leaseMs);
+        return dispatcher;
+    }
+
+    private static JavaMailSenderImpl smtp(int port) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("127.0.0.1");
+        sender.setPort(port);
+        sender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "2000");
+        sender.getJavaMailProperties().put("mail.smtp.timeout", "2000");
+        return sender;
+    }
+
+    private static JavaMailSenderImpl greenMailSender() {
+        return smtp(ServerSetupTest.SMTP.getPort());
+    }
+
+    // Nothing listens on a port that was just released, so every send fails to connect.
+    private static JavaMailSenderImpl unreachableSender() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return smtp(socket.getLocalPort());
+        }
+    }
+
+    @Test
+    void pendingMailIsDeliveredAndMarkedSent() {
+        long id = table.enqueue("alice@example.com");
+
+        dispatcher(greenMailSender(), 60_000).dispatch();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(1);
+        MailOutboxMessage row = table.get(id);
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.SENT);
+        assertThat(row.getAttempts()).isEqualTo(1);
+        assertThat(row.getSentAt()).isNotNull();
+    }
+
+    @Test
+    void aFailedSendIsRetriedAfterABackoffAndThenDelivered() throws Exception {
+        long id = table.enqueue("bob@example.com");
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher(unreachableSender(), 60_000).dispatch();
+
+        MailOutboxMessage failed = table.get(id);
+        assertThat(failed.getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getLastError()).isNotBlank();
+        // First retry waits between half and all of backoff-ms.
+        assertThat(failed.getNextAttemptAt()).isAfterOrEqualTo(before.plus(Duration.ofMillis(BACKOFF_MS / 2)));
+        assertThat(failed.getNextAttemptAt()).isBefore(LocalDateTime.now().plus(Duration.ofMillis(BACKOFF_MS + 1)));
+
+        MailOutboxDispatcher dispatcher = dispatcher(greenMailSender(), 60_000);
+        dispatcher.dispatch();
+        assertThat(greenMail.getReceivedMessages()).as("not due before the backoff").isEmpty();
+
+        table.makeDue(id);
+        dispatcher.dispatch();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(table.get(id).getStatus()).isEqualTo(OutboxStatus.SENT);
+        assertThat(table.get(id).getAttempts()).isEqualTo(2);
+        assertThat(table.get(id).getLastError()).isNull();
+    }
+
+    @Test
+    void mailIsDeadLetteredAfterMaxAttempts() throws Exception {
+        long id = table.enqueue("carol@example.com");
+        MailOutboxDispatcher dispatcher = dispatcher(unreachableSender(), 60_000);
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            table.makeDue(id);
+            dispatcher.dispatch();
+        }
+
+        MailOutboxMessage row = table.get(id);
+        assertThat(row.getStatus()).isEqualTo(OutboxStatus.DEAD);
+        assertThat(row.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(row.getLastError()).isNotBlank();
+
+        table.makeDue(id);
+        dispatcher(greenMailSender(), 60_000).dispatch();
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+    }
+
+    @Test
+    void aBatchWhoseLeaseExpiresIsRedeliveredAndTheStaleNodeCannotOverwriteIt() throws Exception {
+        long id = table.enqueue("dave@example.com");
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        JavaMailSenderImpl stalled = new JavaMailSenderImpl() {
+            @Override
+            public void send(SimpleMailMessage... messages) {
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                greenMailSender().send(messages);
+            }
+        };
+
+        // Node A claims the row with a lease that runs out while its SMTP server hangs.
+        Thread nodeA = new Thread(() -> dispatcher(stalled, 1).dispatch());
+        nodeA.start();
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(20);
+
+        // Node B finds the lease expired and delivers the mail itself.
+        dispatcher(greenMailSender(), 60_000).dispatch();
+        assertThat(table.get(id).getStatus()).isEqualTo(OutboxStatus.SENT);
+        assertThat(table.get(id).getAttempts()).isEqualTo(2);
+        LocalDateTime sentAt = table.get(id).getSentAt();
+
+        release.countDown();
+        nodeA.join(10_000);
+
+        // At least once: the mail went out twice, but node A's late outcome is not written back.
+        assertThat(greenMail.getReceivedMessages()).hasSize(2);
+        assertThat(table.get(id).getAttempts()).isEqualTo(2);
+        assertThat(table.get(id).getSentAt()).isEqualTo(sentAt);
+    }
+
+    /**
+     * In-memory mail_outbox. Rows returned by lockDue are copies, like entities that will be detached,
+     * and changes to them are written back when the claiming transaction commits, like a flush.
+     */
+    private static class OutboxTable {
+        private final Map<Long, MailOutboxMessage> rows = new ConcurrentHashMap<>();
+        private final AtomicLong ids = new AtomicLong();
+        final MailOutboxRepo repo = mock(MailOutboxRepo.class);
+
+        OutboxTable() {
+            when(repo.lockDue(any(), anyInt())).thenAnswer(call -> lockDue(call.getArgument(0), call.getArgument(1)));
+            when(repo.countByStatus(any())).thenAnswer(call ->
+                    rows.values().stream().filter(row -> row.getStatus() == call.getArgument(0)).count());
+            when(repo.completeAttempt(anyLong(), anyInt(), any(), any(), any(), any())).thenAnswer(call ->
+                    completeAttempt(call.getArgument(0), call.getArgument(1), call.getArgument(2),
+                            call.getArgument(3), call.getArgument(4), call.getArgument(5)));
+        }
+
+        long enqueue(String recipient) {
+            MailOutboxMessage message = new MailOutboxMessage();
+            message.setId(ids.incrementAndGet());
+            message.setRecipient(recipient);
+            message.setSubject("Subject");
+            message.setBody("Body");
+            message.setStatus(OutboxStatus.PENDING);
+            message.setCreatedAt(LocalDateTime.now());
+            message.setNextAttemptAt(LocalDateTime.now());
+            rows.put(message.getId(), message);
+            return message.getId();
+        }
+
+        MailOutboxMessage get(long id) {
+            return copy(rows.get(id));
+        }
+
+        void makeDue(long id) {
+            rows.get(id).setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        }
+
+        private synchronized List<MailOutboxMessage> lockDue(LocalDateTime now, int limit) {
+            List<MailOutboxMessage> due = new ArrayList<>();
+            rows.values().stream()
+                    .filter(row -> row.getStatus() == OutboxStatus.PENDING && !row.getNextAttemptAt().isAfter(now))
+                    .sorted(Comparator.comparing(MailOutboxMessage::getNextAttemptAt))
+                    .limit(limit)
+                    .forEach(row -> due.add(copy(row)));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    due.forEach(row -> rows.put(row.getId(), copy(row)));
+                }
+            });
+            return due;
+        }
+
+        private synchronized int completeAttempt(Long id, int attempts, OutboxStatus status, LocalDateTime nextAttemptAt,
+                                                 String lastError, LocalDateTime sentAt) {
+            MailOutboxMessage row = rows.get(id);
+            if (row == null || row.getAttempts() != attempts || row.getStatus() != OutboxStatus.PENDING) {
+                return 0;
+            }
+            row.setStatus(status);
+            row.setNextAttemptAt(nextAttemptAt);
+            row.setLastError(lastError);
+            row.setSentAt(sentAt);
+            return 1;
+        }
+
+        private static MailOutboxMessage copy(MailOutboxMessage row) {
+            MailOutboxMessage copy = new MailOutboxMessage();
+            BeanUtils.copyProperties(row, copy);
+            return copy;
+        }
+    }
+}
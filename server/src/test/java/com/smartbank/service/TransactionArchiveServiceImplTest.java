@@ -0,0 +1,164 @@
+package com.smartbank.service;
+
+import com.smartbank.dto.TransactionResponseDTO;
+import com.smartbank.entity.TransactionArchive;
+import com.smartbank.mapper.TransactionMapper;
+import com.smartbank.repository.TransactionArchiveRepo;
+import com.smartbank.repository.TransactionRepo;
+import com.smartbank.security.CurrentUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransactionArchiveServiceImplTest {
+    private static final int ACCOUNTS = 400;
+    private static final int TRANSFERS_PER_ACCOUNT = 30;
+
+    @TempDir
+    Path dir;
+
+    private final TransactionArchiveRepo archiveRepo = mock(TransactionArchiveRepo.class);
+    private final TransactionRepo transactionRepo = mock(TransactionRepo.class);
+    private final CurrentUser currentUser = mock(CurrentUser.class);
+    private TransactionArchiveServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionRepo.findByAccountBetween(anyLong(), any(), any())).thenReturn(List.of());
+        service = new TransactionArchiveServiceImpl(archiveRepo, transactionRepo, mock(TransactionMapper.class), currentUser);
+        ReflectionTestUtils.setField(service, "maxRangeDays", 366);
+        ReflectionTestUtils.setField(service, "maxRows", 10_000);
+    }
+
+    // Account a sends transfer a * 100 + i to account a + 1 on January (i + 1), 2024.
+    private static List<String[]> transfers() {
+        List<String[]> rows = new ArrayList<>();
+        for (int a = 1; a <= ACCOUNTS; a++) {
+            for (int i = 0; i < TRANSFERS_PER_ACCOUNT; i++) {
+                String date = LocalDate.of(2024, 1, i + 1).atTime(12, 0) + ":00.000000";
+                rows.add(new String[]{String.valueOf(a * 100L + i), "TRANSFER", "COMPLETED", "10.00", date,
+                        String.valueOf(a), String.valueOf(a + 1)});
+            }
+        }
+        return rows;
+    }
+
+    // What the archive COPY produces: each transfer filed under both accounts, by account, date and id.
+    private Path writeIndexed() throws IOException {
+        List<String[]> filed = new ArrayList<>();
+        for (String[] row : transfers()) {
+            filed.add(prepend(row[5], row));
+            filed.add(prepend(row[6], row));
+        }
+        filed.sort(Comparator.<String[]>comparingLong(r -> Long.parseLong(r[0]))
+                .thenComparing(r -> r[5]).thenComparingLong(r -> Long.parseLong(r[1])));
+
+        Path data = dir.resolve("bank_transactions_p202401.csv.gz");
+        try (OutputStream file = Files.newOutputStream(data)) {
+            AccountIndexedArchive.Writer writer = new AccountIndexedArchive.Writer(file);
+            for (String[] row : filed) {
+                writer.write((String.join(",", row) + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            List<String> index = writer.finish();
+            assertThat(writer.transactions()).isEqualTo((long) ACCOUNTS * TRANSFERS_PER_ACCOUNT);
+            Files.write(AccountIndexedArchive.indexPath(data), index);
+        }
+        return data;
+    }
+
+    private static String[] prepend(String account, String[] row) {
+        String[] filed = new String[row.length + 1];
+        filed[0] = account;
+        System.arraycopy(row, 0, filed, 1, row.length);
+        return filed;
+    }
+
+    private void archived(Path data) {
+        TransactionArchive archive = new TransactionArchive();
+        archive.setPartitionName("bank_transactions_p202401");
+        archive.setPath(data.toString());
+        when(archiveRepo.findOverlapping(any(), any())).thenReturn(List.of(archive));
+    }
+
+    private List<TransactionResponseDTO> historyOf(long accountId, LocalDate from, LocalDate to) {
+        when(currentUser.accountId()).thenReturn(Optional.of(accountId));
+        return service.getTransactions(from, to);
+    }
+
+    @Test
+    void readsBothSidesOfAnAccountsTransfersWithinTheRange() throws IOException {
+        archived(writeIndexed());
+
+        List<TransactionResponseDTO> history = historyOf(200, LocalDate.of(2024, 1, 5), LocalDate.of(2024, 1, 9));
+
+        // Days 5 to 9: five sent by account 200, five received from account 199.
+        assertThat(history).extracting(TransactionResponseDTO::getId).containsExactly(
+                20008L, 19908L, 20007L, 19907L, 20006L, 19906L, 20005L, 19905L, 20004L, 19904L);
+        assertThat(history.get(0).getTransactionDate()).isEqualTo(LocalDateTime.of(2024, 1, 9, 12, 0));
+    }
+
+    @Test
+    void decompressesOnlyTheBlockHoldingTheAccount() throws IOException {
+        Path data = writeIndexed();
+        AccountIndexedArchive.Index index = AccountIndexedArchive.readIndex(AccountIndexedArchive.indexPath(data));
+        assertThat(index.offsets()).hasSizeGreaterThan(2);
+        archived(data);
+
+        // Corrupt the first block; an account further on must still be readable.
+        try (RandomAccessFile file = new RandomAccessFile(data.toFile(), "rw")) {
+            file.seek(20);
+            file.write(new byte[64]);
+        }
+
+        List<TransactionResponseDTO> history = historyOf(ACCOUNTS, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+
+        assertThat(history).hasSize(2 * TRANSFERS_PER_ACCOUNT);
+    }
+
+    @Test
+    void anAccountBetweenBlockBoundariesOrAbsentIsHandled() throws IOException {
+        archived(writeIndexed());
+
+        assertThat(historyOf(1, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31))).hasSize(TRANSFERS_PER_ACCOUNT);
+        assertThat(historyOf(ACCOUNTS + 1, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)))
+                .hasSize(TRANSFERS_PER_ACCOUNT);
+        assertThat(historyOf(ACCOUNTS + 50, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31))).isEmpty();
+    }
+
+    @Test
+    void filesArchivedWithoutAnIndexAreScannedInFull() throws IOException {
+        Path data = dir.resolve("bank_transactions_p202312.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(data))) {
+            out.write(("id,transaction_type,transaction_status,amount,transaction_date,source_account_id,target_account_id\n" +
+                    "1,DEPOSIT,COMPLETED,50.00,2023-12-01T09:00:00.000000,,7\n" +
+                    "2,TRANSFER,COMPLETED,20.00,2023-12-02T09:00:00.000000,8,9\n" +
+                    "3,WITHDRAWAL,COMPLETED,5.00,2023-12-03T09:00:00.000000,7,\n").getBytes(StandardCharsets.UTF_8));
+        }
+        archived(data);
+
+        List<TransactionResponseDTO> history = historyOf(7, LocalDate.of(2023, 12, 1), LocalDate.of(2023, 12, 31));
+
+        assertThat(history).extracting(TransactionResponseDTO::getId).containsExactly(3L, 1L);
+    }
+}
@@ -0,0 +1,251 @@
+package com.smartbank.service;
+
+import com.smartbank.dto.ImportJobDTO;
+import com.smartbank.entity.ImportJob;
+import com.smartbank.entity.enums.ImportJobStatus;
+import com.smartbank.mapper.ImportJobMapperImpl;
+import com.smartbank.repository.AccountIdView;
+import com.smartbank.repository.AccountRepo;
+import com.smartbank.repository.ImportJobRepo;
+import com.smartbank.repository.TransactionCopyWriter;
+import com.smartbank.support.NoOpTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionImportServiceImplTest {
+    private static final String HEADER = "transaction_type,transaction_status,amount,transaction_date,"
+            + "source_account_number,target_account_number";
+
+    private final Database db = new Database();
+    private final AccountSummaryService summaryService = mock(AccountSummaryService.class);
+    private final TransactionImportServiceImpl service = new TransactionImportServiceImpl(db.jobs, db.accounts,
+            db.copyWriter, summaryService, new ImportJobMapperImpl(),
+            new TransactionTemplate(new NoOpTransactionManager()), mock(TransactionPartitionManager.class),
+            new SimpleMeterRegistry(), 3);
+
+    // Seven data lines, one per day; line 2 names an account that does not exist.
+    private static InputStream input() {
+        StringBuilder csv = new StringBuilder(HEADER).append('\n');
+        for (int i = 1; i <= 7; i++) {
+            String account = i == 2 ? "MISSING" : i % 2 == 0 ? "ACC2" : "ACC1";
+            csv.append("DEPOSIT,,").append(i).append(".00,2025-06-0").append(i).append(',').append(account).append(",\n");
+        }
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void anImportCutShortResumesAfterItsLastCommittedChunkWithoutDuplicates() {
+        db.failBumpOnCall(2);
+
+        assertThatThrownBy(() -> service.importTransactions("june.csv", input(), null))
+                .isInstanceOf(QueryTimeoutException.class);
+
+        ImportJob failed = db.onlyJob();
+        assertThat(failed.getStatus()).isEqualTo(ImportJobStatus.FAILED);
+        assertThat(failed.getLinesProcessed()).isEqualTo(3);
+        assertThat(failed.getRowsImported()).isEqualTo(2);
+        assertThat(failed.getRowsRejected()).isEqualTo(1);
+        assertThat(db.transactions).extracting(Database::amount).containsExactly("1.00", "3.00");
+
+        ImportJobDTO resumed = service.importTransactions("june.csv", input(), failed.getId());
+
+        assertThat(resumed.getStatus()).isEqualTo("COMPLETED");
+        assertThat(resumed.getLinesProcessed()).isEqualTo(7);
+        assertThat(resumed.getRowsImported()).isEqualTo(6);
+        assertThat(resumed.getRowsRejected()).isEqualTo(1);
+        assertThat(resumed.getErrors()).startsWith("line 2: unknown source account\n").contains("aborted: ");
+        assertThat(db.transactions).extracting(Database::amount)
+                .containsExactly("1.00", "3.00", "4.00", "5.00", "6.00", "7.00");
+        verify(summaryService).rebuild(LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 7));
+    }
+
+    @Test
+    void aResumeWithShorterInputThanAlreadyProcessedLoadsNothing() {
+        db.failBumpOnCall(2);
+        assertThatThrownBy(() -> service.importTransactions("june.csv", input(), null));
+        Long id = db.onlyJob().getId();
+        InputStream truncated = new ByteArrayInputStream((HEADER + "\nDEPOSIT,,1.00,2025-06-01,ACC1,\n")
+                .getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> service.importTransactions("june.csv", truncated, id))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("already processed 3 lines");
+
+        assertThat(db.onlyJob().getLinesProcessed()).isEqualTo(3);
+        assertThat(db.transactions).hasSize(2);
+    }
+
+    @Test
+    void aCompletedJobCannotBeResumed() {
+        ImportJobDTO done = service.importTransactions("june.csv", input(), null);
+
+        assertThatThrownBy(() -> service.importTransactions("june.csv", input(), done.getId()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(db.transactions).hasSize(6);
+    }
+
+    @Test
+    void aChunkIsNotLoadedWhenAnotherImporterAdvancedTheJob() {
+        db.failBumpOnCall(2);
+        assertThatThrownBy(() -> service.importTransactions("june.csv", input(), null));
+        Long id = db.onlyJob().getId();
+        // The resume locks the job once to restart it and again for its first chunk.
+        db.beforeLock(2, () -> db.committedJob(id).setLinesProcessed(6));
+
+        assertThatThrownBy(() -> service.importTransactions("june.csv", input(), id))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(db.transactions).hasSize(2);
+    }
+
+    /**
+     * In-memory import_job, account and bank_transactions tables. Loaded rows and job changes only
+     * become visible when the surrounding transaction commits, as with the real chunk transaction.
+     */
+    private static class Database {
+        final ImportJobRepo jobs = mock(ImportJobRepo.class);
+        final AccountRepo accounts = mock(AccountRepo.class);
+        final TransactionCopyWriter copyWriter = mock(TransactionCopyWriter.class);
+        final List<String> transactions = new ArrayList<>();
+        private final Map<Long, ImportJob> jobRows = new HashMap<>();
+        private final Map<String, Long> accountIds = Map.of("ACC1", 1L, "ACC2", 2L);
+        private final AtomicInteger bumps = new AtomicInteger();
+        private int failingBump = -1;
+        private final AtomicInteger locks = new AtomicInteger();
+        private int hookedLock = -1;
+        private Runnable lockHook = () -> { };
+
+        Database() {
+            when(jobs.save(any())).thenAnswer(call -> {
+                ImportJob job = call.getArgument(0);
+                if (job.getId() == null) {
+                    job.setId(jobRows.size() + 1L);
+                }
+                jobRows.put(job.getId(), copy(job));
+                return job;
+            });
+            when(jobs.lockById(anyLong())).thenAnswer(call -> {
+                if (locks.incrementAndGet() == hookedLock) {
+                    lockHook.run();
+                }
+                return read(call.getArgument(0));
+            });
+            when(jobs.findById(anyLong())).thenAnswer(call -> read(call.getArgument(0)));
+            when(accounts.findIdsByAccountNumberIn(any())).thenAnswer(call -> call.<Collection<String>>getArgument(0)
+                    .stream()
+                    .filter(accountIds::containsKey)
+                    .map(number -> view(number, accountIds.get(number)))
+                    .toList());
+            when(accounts.bumpRevisions(any())).thenAnswer(call -> {
+                if (bumps.incrementAndGet() == failingBump) {
+                    throw new QueryTimeoutException("canceling statement due to statement timeout");
+                }
+                return call.<Collection<Long>>getArgument(0).size();
+            });
+            when(copyWriter.copyIn(any())).thenAnswer(call -> {
+                List<String> rows = call.<CharSequence>getArgument(0).toString().lines().toList();
+                afterCommit(() -> transactions.addAll(rows));
+                return (long) rows.size();
+            });
+        }
+
+        void failBumpOnCall(int call) {
+            failingBump = call;
+        }
+
+        // Runs the action just before the n-th lockById from now, as another importer would.
+        void beforeLock(int n, Runnable action) {
+            hookedLock = locks.get() + n;
+            lockHook = action;
+        }
+
+        ImportJob onlyJob() {
+            assertThat(jobRows).hasSize(1);
+            return copy(jobRows.values().iterator().next());
+        }
+
+        ImportJob committedJob(Long id) {
+            return jobRows.get(id);
+        }
+
+        static String amount(String row) {
+            return row.split(",")[2];
+        }
+
+        // A managed copy: changes made to it are written back when the transaction commits.
+        private Optional<ImportJob> read(Long id) {
+            ImportJob row = jobRows.get(id);
+            if (row == null) {
+                return Optional.empty();
+            }
+            ImportJob managed = copy(row);
+            afterCommit(() -> jobRows.put(id, copy(managed)));
+            return Optional.of(managed);
+        }
+
+        private static void afterCommit(Runnable action) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+
+        private static ImportJob copy(ImportJob job) {
+            ImportJob copy = new ImportJob();
+            copy.setId(job.getId());
+            copy.setSource(job.getSource());
+            copy.setStatus(job.getStatus());
+            copy.setLinesProcessed(job.getLinesProcessed());
+            copy.setRowsImported(job.getRowsImported());
+            copy.setRowsRejected(job.getRowsRejected());
+            copy.setErrors(job.getErrors());
+            copy.setMinTransactionDate(job.getMinTransactionDate());
+            copy.setMaxTransactionDate(job.getMaxTransactionDate());
+            copy.setStartedAt(job.getStartedAt());
+            copy.setUpdatedAt(job.getUpdatedAt());
+            copy.setFinishedAt(job.getFinishedAt());
+            return copy;
+        }
+
+        private static AccountIdView view(String number, Long id) {
+            return new AccountIdView() {
+                @Override
+                public String getAccountNumber() {
+                    return number;
+                }
+
+                @Override
+                public Long getId() {
+                    return id;
+                }
+            };
+        }
+    }
+}
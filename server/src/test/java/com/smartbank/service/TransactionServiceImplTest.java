@@ -0,0 +1,381 @@
+package com.smartbank.service;
+
+import com.smartbank.dto.BatchItemResultDTO;
+import com.smartbank.dto.BatchTransactionRequestDTO;
+import com.smartbank.dto.BatchTransactionResponseDTO;
+import com.smartbank.dto.TransactionPageDTO;
+import com.smartbank.dto.TransactionRequestDTO;
+import com.smartbank.dto.TransactionResponseDTO;
+import com.smartbank.entity.Account;
+import com.smartbank.entity.Transaction;
+import com.smartbank.entity.User;
+import com.smartbank.entity.enums.TransactionStatus;
+import com.smartbank.entity.enums.TransactionType;
+import com.smartbank.mapper.TransactionMapper;
+import com.smartbank.repository.AccountPinView;
+import com.smartbank.repository.AccountRepo;
+import com.smartbank.repository.TransactionBatchWriter;
+import com.smartbank.repository.TransactionRepo;
+import com.smartbank.security.CurrentUser;
+import com.smartbank.security.JwtUtil;
+import com.smartbank.support.NoOpTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionServiceImplTest {
+    private static final long ACCOUNT_ID = 1L;
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 1, 9, 0);
+    private static final Comparator<Transaction> NEWEST_FIRST = Comparator
+            .comparing(Transaction::getTransactionDate).thenComparingLong(Transaction::getId).reversed();
+
+    private final TransactionRepo transactionRepo = mock(TransactionRepo.class);
+    private final CurrentUser currentUser = mock(CurrentUser.class);
+    private final TransactionMapper transactionMapper = mock(TransactionMapper.class);
+    private final TransactionPartitionManager partitionManager = mock(TransactionPartitionManager.class);
+    private final AccountRepo accountRepo = mock(AccountRepo.class);
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final AccountLockManager lockManager = mock(AccountLockManager.class);
+    private final TransactionBatchWriter batchWriter = mock(TransactionBatchWriter.class);
+    private final Map<String, Account> accounts = new HashMap<>();
+    private final List<Transaction> table = new ArrayList<>();
+    private TransactionServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TransactionServiceImpl(transactionRepo, accountRepo, passwordEncoder,
+                currentUser, batchWriter, lockManager,
+                new TransactionTemplate(new NoOpTransactionManager()), mock(JwtUtil.class), transactionMapper,
+                mock(ApplicationEventPublisher.class), mock(BalanceStripeManager.class), mock(TransactionPipeline.class),
+                mock(AccountSummaryRecorder.class), partitionManager, mock(TransactionMetrics.class));
+        ReflectionTestUtils.setField(service, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(service, "maxPageSize", 100);
+        ReflectionTestUtils.setField(service, "maxBatchSize", 10);
+
+        when(currentUser.accountId()).thenReturn(Optional.of(ACCOUNT_ID));
+        when(partitionManager.hotFrom()).thenReturn(LocalDateTime.of(1, 1, 1, 0, 0));
+        when(transactionMapper.toResponseDTO(any())).thenAnswer(call -> {
+            Transaction tx = call.getArgument(0);
+            TransactionResponseDTO dto = new TransactionResponseDTO();
+            dto.setId(tx.getId());
+            dto.setTransactionDate(tx.getTransactionDate());
+            return dto;
+        });
+        // Same predicates and order as the keyset queries, over an in-memory table.
+        when(transactionRepo.findOutgoingBefore(anyLong(), any(), anyLong(), any(), any())).thenAnswer(call ->
+                before(tx -> isAccount(tx.getSourceAccount(), call.getArgument(0)),
+                        call.getArgument(1), call.getArgument(2), call.getArgument(3), call.getArgument(4)));
+        when(transactionRepo.findIncomingBefore(anyLong(), any(), anyLong(), any(), any())).thenAnswer(call ->
+                before(tx -> isAccount(tx.getTargetAccount(), call.getArgument(0)),
+                        call.getArgument(1), call.getArgument(2), call.getArgument(3), call.getArgument(4)));
+    }
+
+    private void batchAccounts() {
+        when(currentUser.email()).thenReturn("owner@example.com");
+        when(passwordEncoder.matches(any(), any())).thenAnswer(call -> "1234".equals(call.getArgument(0)));
+        when(accountRepo.findPinsByAccountNumberIn(any())).thenAnswer(call -> call.<Collection<String>>getArgument(0)
+                .stream()
+                .filter(accounts::containsKey)
+                .map(number -> (AccountPinView) new AccountPinView() {
+                    @Override
+                    public String getAccountNumber() {
+                        return number;
+                    }
+
+                    @Override
+                    public String getPin() {
+                        return "hash";
+                    }
+                })
+                .toList());
+        when(lockManager.lockAllInOrder(any())).thenAnswer(call -> call.<Collection<String>>getArgument(0).stream()
+                .map(accounts::get)
+                .filter(Objects::nonNull)
+                .toList());
+        when(lockManager.withRetry(any())).thenAnswer(call -> call.<Supplier<?>>getArgument(0).get());
+    }
+
+    private Account batchAccount(long id, String number, String balance) {
+        Account account = account(id);
+        account.setAccountNumber(number);
+        account.setBalance(new BigDecimal(balance));
+        User user = new User();
+        user.setId(id);
+        account.setUser(user);
+        accounts.put(number, account);
+        return account;
+    }
+
+    private static TransactionRequestDTO item(String type, String source, String target, String amount, String pin) {
+        TransactionRequestDTO dto = new TransactionRequestDTO();
+        dto.setTransactionType(type);
+        dto.setSourceAccountNumber(source);
+        dto.setTargetAccountNumber(target);
+        dto.setAmount(new BigDecimal(amount));
+        dto.setPin(pin);
+        return dto;
+    }
+
+    private static BatchTransactionRequestDTO batch(String mode, TransactionRequestDTO... items) {
+        BatchTransactionRequestDTO batch = new BatchTransactionRequestDTO();
+        batch.setMode(mode);
+        batch.setTransactions(List.of(items));
+        return batch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Transaction> inserted() {
+        ArgumentCaptor<List<Transaction>> captor = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter).insertAll(captor.capture());
+        return captor.getValue();
+    }
+
+    private List<Transaction> before(Predicate<Transaction> direction, LocalDateTime date, long id,
+                                     LocalDateTime hotFrom, Limit limit) {
+        return table.stream()
+                .filter(direction)
+                .filter(tx -> !tx.getTransactionDate().isBefore(hotFrom))
+                .filter(tx -> tx.getTransactionDate().isBefore(date)
+                        || tx.getTransactionDate().isEqual(date) && tx.getId() < id)
+                .sorted(NEWEST_FIRST)
+                .limit(limit.max())
+                .toList();
+    }
+
+    private static boolean isAccount(Account account, long accountId) {
+        return account != null && account.getId() == accountId;
+    }
+
+    private Transaction add(long id, LocalDateTime date, Long sourceId, Long targetId) {
+        Transaction tx = new Transaction();
+        tx.setId(id);
+        tx.setTransactionType(TransactionType.TRANSFER);
+        tx.setTransactionStatus(TransactionStatus.COMPLETED);
+        tx.setAmount(BigDecimal.TEN);
+        tx.setTransactionDate(date);
+        tx.setSourceAccount(account(sourceId));
+        tx.setTargetAccount(account(targetId));
+        table.add(tx);
+        return tx;
+    }
+
+    private static Account account(Long id) {
+        if (id == null) {
+            return null;
+        }
+        Account account = new Account();
+        account.setId(id);
+        return account;
+    }
+
+    private List<Long> readAllPages(int limit) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        TransactionPageDTO page;
+        do {
+            page = service.getAllTransactions(cursor, limit);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(limit);
+            page.getItems().forEach(item -> ids.add(item.getId()));
+            cursor = page.getNextCursor();
+            assertThat(cursor != null).isEqualTo(page.isHasMore());
+        } while (page.isHasMore());
+        return ids;
+    }
+
+    @Test
+    void pagesWalkTheMergedHistoryNewestFirstWithoutGapsOrRepeats() {
+        List<Transaction> mine = new ArrayList<>();
+        for (int i = 0; i < 37; i++) {
+            // Several transactions share a timestamp, so the id breaks ties across page boundaries.
+            LocalDateTime date = BASE.plusMinutes(i / 3);
+            boolean outgoing = i % 2 == 0;
+            mine.add(add(100 + i, date, outgoing ? ACCOUNT_ID : 2L, outgoing ? 3L : ACCOUNT_ID));
+        }
+        add(500, BASE.plusMinutes(5), 2L, 3L); // someone else's
+
+        List<Long> expected = mine.stream().sorted(NEWEST_FIRST).map(Transaction::getId).toList();
+
+        assertThat(readAllPages(5)).containsExactlyElementsOf(expected);
+        assertThat(readAllPages(7)).containsExactlyElementsOf(expected);
+        assertThat(readAllPages(100)).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void aTransferToTheSameAccountIsListedOnce() {
+        add(1, BASE, ACCOUNT_ID, ACCOUNT_ID);
+        add(2, BASE.plusMinutes(1), ACCOUNT_ID, 2L);
+
+        assertThat(readAllPages(1)).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void theLastPageHasNoCursor() {
+        add(1, BASE, ACCOUNT_ID, 2L);
+        add(2, BASE.plusMinutes(1), 2L, ACCOUNT_ID);
+
+        TransactionPageDTO page = service.getAllTransactions(null, 2);
+
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.isHasMore()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void rowsInsertedAfterTheFirstPageDoNotShiftLaterPages() {
+        for (int i = 0; i < 6; i++) {
+            add(10 + i, BASE.plusMinutes(i), ACCOUNT_ID, 2L);
+        }
+        TransactionPageDTO first = service.getAllTransactions(null, 3);
+        add(99, BASE.plusHours(1), ACCOUNT_ID, 2L);
+
+        TransactionPageDTO second = service.getAllTransactions(first.getNextCursor(), 3);
+
+        assertThat(first.getItems()).extracting(TransactionResponseDTO::getId).containsExactly(15L, 14L, 13L);
+        assertThat(second.getItems()).extracting(TransactionResponseDTO::getId).containsExactly(12L, 11L, 10L);
+    }
+
+    @Test
+    void historyBeforeTheHotWindowIsNotListed() {
+        add(1, BASE.minusYears(3), ACCOUNT_ID, 2L);
+        add(2, BASE, ACCOUNT_ID, 2L);
+        when(partitionManager.hotFrom()).thenReturn(BASE.minusYears(2));
+
+        assertThat(readAllPages(10)).containsExactly(2L);
+    }
+
+    @Test
+    void limitsAreValidatedAndCapped() {
+        for (int i = 0; i < 150; i++) {
+            add(i + 1, BASE.plusSeconds(i), ACCOUNT_ID, 2L);
+        }
+
+        assertThat(service.getAllTransactions(null, null).getItems()).hasSize(20);
+        assertThat(service.getAllTransactions(null, 1000).getItems()).hasSize(100);
+        assertThatThrownBy(() -> service.getAllTransactions(null, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cursorsRoundTripAndRejectGarbage() {
+        TransactionCursor cursor = new TransactionCursor(BASE.plusNanos(123_000), 42);
+
+        assertThat(TransactionCursor.decode(cursor.encode())).isEqualTo(cursor);
+        assertThat(TransactionCursor.decode(null)).isEqualTo(TransactionCursor.START);
+        assertThat(TransactionCursor.decode(" ")).isEqualTo(TransactionCursor.START);
+        assertThatThrownBy(() -> TransactionCursor.decode("not-a-cursor")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TransactionCursor.decode("!!")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void anAllOrNothingBatchWithAFailingItemChangesNothing() {
+        batchAccounts();
+        Account a = batchAccount(1, "A", "100.00");
+        Account b = batchAccount(2, "B", "0.00");
+
+        // The withdrawal only fails because the transfer before it used up the balance.
+        BatchTransactionResponseDTO response = service.createTransactions(batch("ALL_OR_NOTHING",
+                item("TRANSFER", "A", "B", "60.00", "1234"),
+                item("WITHDRAWAL", "A", null, "60.00", "1234")));
+
+        assertThat(response.isCommitted()).isFalse();
+        assertThat(response.getCompleted()).isZero();
+        assertThat(response.getFailed()).isEqualTo(1);
+        assertThat(response.getResults()).extracting(BatchItemResultDTO::getStatus).containsExactly("ROLLED_BACK", "FAILED");
+        assertThat(a.getBalance()).isEqualByComparingTo("100.00");
+        assertThat(b.getBalance()).isEqualByComparingTo("0.00");
+        verify(batchWriter, never()).insertAll(any());
+    }
+
+    @Test
+    void anAllOrNothingBatchAppliesEveryItemAgainstRunningBalances() {
+        batchAccounts();
+        Account a = batchAccount(1, "A", "100.00");
+        Account b = batchAccount(2, "B", "0.00");
+
+        BatchTransactionResponseDTO response = service.createTransactions(batch("ALL_OR_NOTHING",
+                item("TRANSFER", "A", "B", "60.00", "1234"),
+                item("WITHDRAWAL", "B", null, "50.00", "1234"),
+                item("DEPOSIT", "A", null, "5.00", "1234")));
+
+        assertThat(response.isCommitted()).isTrue();
+        assertThat(response.getCompleted()).isEqualTo(3);
+        assertThat(response.getResults()).extracting(BatchItemResultDTO::getStatus).containsOnly("COMPLETED");
+        assertThat(a.getBalance()).isEqualByComparingTo("45.00");
+        assertThat(b.getBalance()).isEqualByComparingTo("10.00");
+        assertThat(inserted()).hasSize(3);
+    }
+
+    @Test
+    void aBestEffortBatchCommitsTheItemsThatSucceed() {
+        batchAccounts();
+        Account a = batchAccount(1, "A", "100.00");
+        Account b = batchAccount(2, "B", "0.00");
+
+        BatchTransactionResponseDTO response = service.createTransactions(batch("BEST_EFFORT",
+                item("TRANSFER", "A", "B", "60.00", "1234"),
+                item("WITHDRAWAL", "A", null, "60.00", "1234"),
+                item("TRANSFER", "A", "MISSING", "1.00", "1234"),
+                item("DEPOSIT", "B", null, "1.00", "0000")));
+
+        assertThat(response.isCommitted()).isTrue();
+        assertThat(response.getCompleted()).isEqualTo(1);
+        assertThat(response.getFailed()).isEqualTo(3);
+        assertThat(response.getResults()).extracting(BatchItemResultDTO::getStatus)
+                .containsExactly("COMPLETED", "FAILED", "FAILED", "FAILED");
+        assertThat(response.getResults()).extracting(BatchItemResultDTO::getError)
+                .containsExactly(null, "Insufficient balance", "Target account not found", "Invalid PIN");
+        assertThat(a.getBalance()).isEqualByComparingTo("40.00");
+        assertThat(b.getBalance()).isEqualByComparingTo("60.00");
+        assertThat(inserted()).hasSize(1);
+    }
+
+    @Test
+    void eachAccountPinPairIsCheckedOncePerBatch() {
+        batchAccounts();
+        batchAccount(1, "A", "100.00");
+
+        service.createTransactions(batch("ALL_OR_NOTHING",
+                item("WITHDRAWAL", "A", null, "1.00", "1234"),
+                item("WITHDRAWAL", "A", null, "1.00", "1234"),
+                item("WITHDRAWAL", "A", null, "1.00", "1234")));
+
+        verify(passwordEncoder, times(1)).matches(any(), any());
+    }
+
+    @Test
+    void batchesOverTheSizeLimitAreRejected() {
+        TransactionRequestDTO[] items = new TransactionRequestDTO[11];
+        Arrays.fill(items, item("DEPOSIT", "A", null, "1.00", "1234"));
+
+        assertThatThrownBy(() -> service.createTransactions(batch("BEST_EFFORT", items)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,263 @@
+package com.smartbank.stream;
+
+import com.smartbank.cache.CacheInvalidationChannel;
+import com.smartbank.cache.LocalInvalidationChannel;
+import com.smartbank.dto.TransactionResponseDTO;
+import com.smartbank.event.TransactionStatusChangedEvent;
+import com.smartbank.service.AccountService;
+import com.smartbank.service.TransactionService;
+import com.smartbank.support.NoOpTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventStreamHubTest {
+    private static final int QUEUE_CAPACITY = 16;
+    private static final long WRITE_TIMEOUT_MS = 200;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Handed out in order by newEmitter, one per subscribe call.
+    private final Deque<SseEmitter> nextEmitters = new ArrayDeque<>();
+    // Holds every write to a client that stopped reading until the test ends.
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private final List<EventStreamHub> hubs = new ArrayList<>();
+    private TransactionService transactionService;
+    private EventStreamHub hub;
+
+    @BeforeEach
+    void setUp() {
+        transactionService = mock(TransactionService.class);
+        hub = newHub(new LocalInvalidationChannel());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        unblock.countDown();
+        for (EventStreamHub started : hubs) {
+            started.shutdown();
+        }
+    }
+
+    private EventStreamHub newHub(CacheInvalidationChannel channel) {
+        AccountService accountService = mock(AccountService.class);
+        when(accountService.findAccountView(any())).thenReturn(Optional.empty());
+        EventStreamHub created = new EventStreamHub(accountService, transactionService,
+                new TransactionTemplate(new NoOpTransactionManager()), channel, meterRegistry, 100, 5,
+                QUEUE_CAPACITY, 256, 60_000, WRITE_TIMEOUT_MS, 5, false) {
+            @Override
+            SseEmitter newEmitter(long timeoutMs) {
+                return nextEmitters.removeFirst();
+            }
+        };
+        hubs.add(created);
+        return created;
+    }
+
+    private RecordingEmitter connect(Long userId) {
+        return connect(hub, userId);
+    }
+
+    private RecordingEmitter connect(EventStreamHub target, Long userId) {
+        RecordingEmitter emitter = new RecordingEmitter();
+        nextEmitters.add(emitter);
+        target.subscribe(userId, null);
+        return emitter;
+    }
+
+    private StalledEmitter connectStalled(Long userId) {
+        StalledEmitter emitter = new StalledEmitter();
+        nextEmitters.add(emitter);
+        hub.subscribe(userId, null);
+        return emitter;
+    }
+
+    private void publishTo(Long userId, long transactionId) {
+        hub.onTransactionStatusChanged(new TransactionStatusChangedEvent(transaction(transactionId), userId, null));
+    }
+
+    private static TransactionResponseDTO transaction(long id) {
+        TransactionResponseDTO transaction = new TransactionResponseDTO();
+        transaction.setId(id);
+        transaction.setTransactionStatus("COMPLETED");
+        return transaction;
+    }
+
+    private double dropped(String reason) {
+        return meterRegistry.counter("smartbank.stream.dropped", "reason", reason).count();
+    }
+
+    private double connections() {
+        return meterRegistry.get("smartbank.stream.connections").gauge().value();
+    }
+
+    @Test
+    void clientsThatStopReadingDoNotHoldUpOtherStreams() throws InterruptedException {
+        // More stalled clients than the old fixed pool had threads.
+        StalledEmitter[] stalled = new StalledEmitter[8];
+        for (int i = 0; i < stalled.length; i++) {
+            stalled[i] = connectStalled(100L + i);
+        }
+        RecordingEmitter healthy = connect(1L);
+
+        for (int i = 0; i < stalled.length; i++) {
+            publishTo(100L + i, i);
+        }
+        for (int i = 0; i < stalled.length; i++) {
+            assertThat(stalled[i].writeStarted.await(2, TimeUnit.SECONDS)).isTrue();
+        }
+        for (long id = 1; id <= 3; id++) {
+            publishTo(1L, 1000 + id);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(healthy.sent.poll(2, TimeUnit.SECONDS)).as("event %d to the reading client", i).isNotNull();
+        }
+    }
+
+    @Test
+    void aWriteBlockedLongerThanTheWriteTimeoutDisconnectsThatClient() throws InterruptedException {
+        StalledEmitter stalled = connectStalled(100L);
+        RecordingEmitter healthy = connect(1L);
+        publishTo(100L, 1);
+        assertThat(stalled.writeStarted.await(2, TimeUnit.SECONDS)).isTrue();
+
+        hub.disconnectStalled();
+        assertThat(dropped("stalled")).isZero();
+
+        Thread.sleep(WRITE_TIMEOUT_MS + 100);
+        hub.disconnectStalled();
+
+        assertThat(dropped("stalled")).isEqualTo(1);
+        assertThat(connections()).isEqualTo(1);
+        // Completion waits for the blocked write, so it must not run on the caller's thread.
+        assertThat(stalled.completed.getCount()).isEqualTo(1);
+        unblock.countDown();
+        assertThat(stalled.completed.await(2, TimeUnit.SECONDS)).isTrue();
+
+        publishTo(1L, 2);
+        assertThat(healthy.sent.poll(2, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void aClientWhoseQueueFillsUpIsDroppedAsSlow() throws InterruptedException {
+        StalledEmitter stalled = connectStalled(100L);
+        publishTo(100L, 0);
+        assertThat(stalled.writeStarted.await(2, TimeUnit.SECONDS)).isTrue();
+
+        // One event is being written; the queue then takes QUEUE_CAPACITY more.
+        for (int i = 1; i <= QUEUE_CAPACITY; i++) {
+            publishTo(100L, i);
+        }
+        assertThat(dropped("slow")).isZero();
+        publishTo(100L, QUEUE_CAPACITY + 1);
+
+        assertThat(dropped("slow")).isEqualTo(1);
+        assertThat(connections()).isZero();
+    }
+
+    @Test
+    void transactionsCommittedOnAnotherNodeReachStreamsOnThisOne() throws InterruptedException {
+        List<NodeChannel> cluster = new CopyOnWriteArrayList<>();
+        EventStreamHub nodeA = newHub(new NodeChannel(cluster));
+        EventStreamHub nodeB = newHub(new NodeChannel(cluster));
+        when(transactionService.findTransactionView(42L)).thenReturn(Optional.of(transaction(42)));
+        RecordingEmitter sourceOnA = connect(nodeA, 1L);
+        RecordingEmitter targetOnB = connect(nodeB, 2L);
+
+        nodeA.onTransactionStatusChanged(new TransactionStatusChangedEvent(transaction(42), 1L, 2L));
+
+        assertThat(sourceOnA.sent.poll(2, TimeUnit.SECONDS)).isNotNull();
+        assertThat(targetOnB.sent.poll(2, TimeUnit.SECONDS)).isNotNull();
+        // The publishing node does not get its own notice back, so nobody sees the event twice.
+        assertThat(sourceOnA.sent.poll(200, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(targetOnB.sent.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    // Hubs on channels sharing one cluster list behave like nodes listening on the same Postgres channel.
+    private static class NodeChannel implements CacheInvalidationChannel {
+        private final List<NodeChannel> cluster;
+        private final List<Consumer<Long>> listeners = new CopyOnWriteArrayList<>();
+        private final List<Consumer<TransactionNotice>> transactionListeners = new CopyOnWriteArrayList<>();
+
+        NodeChannel(List<NodeChannel> cluster) {
+            this.cluster = cluster;
+            cluster.add(this);
+        }
+
+        @Override
+        public void publish(Long userId) {
+            cluster.stream().filter(node -> node != this).forEach(node -> node.listeners.forEach(l -> l.accept(userId)));
+        }
+
+        @Override
+        public void subscribe(Consumer<Long> listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void publishTransaction(TransactionNotice notice) {
+            cluster.stream().filter(node -> node != this).forEach(node -> node.transactionListeners.forEach(l -> l.accept(notice)));
+        }
+
+        @Override
+        public void subscribeTransactions(Consumer<TransactionNotice> listener) {
+            transactionListeners.add(listener);
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        final BlockingQueue<SseEventBuilder> sent = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sent.add(builder);
+        }
+    }
+
+    // Behaves like a client whose TCP window is full: the first write never returns on its own.
+    private class StalledEmitter extends SseEmitter {
+        final CountDownLatch writeStarted = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            writeStarted.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Like the real emitter, completing waits for the write in progress.
+        @Override
+        public void complete() {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completed.countDown();
+        }
+    }
+}